@@ -0,0 +1,68 @@
+package com.space.benchmarks;
+
+import com.space.config.AppConfig;
+import com.space.config.WebConfig;
+import com.space.service.FleetGenerator;
+import com.space.service.ShipService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+/**
+ * The whole application on the {@code dev} profile, with an in-memory H2 database filled with {@link #ships}
+ * synthetic ships. Benchmarks extend it to get the beans they measure.
+ */
+@State(Scope.Benchmark)
+public abstract class CosmoportState {
+
+    /**
+     * Number of ships loaded before the measurement, {@code -p ships=1000000} for a production-sized table.
+     */
+    @Param("10000")
+    public int ships;
+
+    /**
+     * Whether the Hibernate query cache is on; off by default so that repeated queries reach the database.
+     */
+    @Param("false")
+    public boolean queryCache;
+
+    /**
+     * Whether list and count requests are served by the in-memory read model instead of the database.
+     */
+    @Param("false")
+    public boolean readModel;
+
+    /**
+     * Whether repeated count requests are answered by the count cache; off by default so that every count is computed.
+     */
+    @Param("false")
+    public boolean countCache;
+
+    protected AnnotationConfigWebApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        System.setProperty("hibernate.cache.use_query_cache", String.valueOf(queryCache));
+        System.setProperty("ships.read-model.enabled", String.valueOf(readModel));
+        System.setProperty("ships.count-cache.max-size", countCache ? "256" : "0");
+
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().setActiveProfiles("dev");
+        context.register(AppConfig.class, WebConfig.class);
+        context.refresh();
+
+        new FleetGenerator(42).loadInto(context.getBean(ShipService.class), ships);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+}
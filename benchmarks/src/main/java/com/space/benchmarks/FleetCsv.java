@@ -0,0 +1,31 @@
+package com.space.benchmarks;
+
+import com.space.service.FleetGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@code FleetCsv <count> [seed]} writes the CSV of {@link FleetGenerator#writeCsv(Writer, long)} to standard output,
+ * for loading a large fleet with the database's own bulk loader:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.space.benchmarks.FleetCsv 1000000 &gt; ships.csv
+ * </pre>
+ */
+public class FleetCsv {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: FleetCsv <count> [seed]");
+            System.exit(1);
+        }
+        long count = Long.parseLong(args[0]);
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        new FleetGenerator(seed).writeCsv(writer, count);
+    }
+}
@@ -0,0 +1,63 @@
+package com.space.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.config.WebConfig;
+import com.space.model.Ship;
+import com.space.service.FleetGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of ships with the {@link ObjectMapper} the REST endpoints use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param("20")
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Ship ship;
+    private List<Ship> page;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        objectMapper = new WebConfig(new SimpleMeterRegistry(), null, false).objectMapper();
+        page = new FleetGenerator(42).next(pageSize);
+        long id = 1;
+        for (Ship next : page) {
+            next.setId(id++);
+        }
+        ship = page.get(0);
+    }
+
+    @Benchmark
+    public byte[] serializeShip() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ship);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,119 @@
+package com.space.benchmarks;
+
+import com.space.service.ShipRating;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ShipRating} against the two BigDecimal/Calendar versions it replaced:
+ * the one from {@code ShipController.getRating} and the one from {@code ShipServiceImpl.remakeRating}.
+ * Run with {@code -prof gc} to see the allocation rate of each.
+ * <p>
+ * The setup checks every input against {@code BigDecimal.valueOf(...).setScale(2, HALF_UP)} and refuses to run
+ * if any rating differs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingBenchmark {
+    private static final int SIZE = 1 << 16;
+
+    private final long[] prodDates = new long[SIZE];
+    private final double[] speeds = new double[SIZE];
+    private final boolean[] used = new boolean[SIZE];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        long from = new GregorianCalendar(2800, Calendar.JANUARY, 1).getTimeInMillis();
+        long to = new GregorianCalendar(3020, Calendar.JANUARY, 1).getTimeInMillis();
+        for (int i = 0; i < SIZE; i++) {
+            prodDates[i] = from + (long) (random.nextDouble() * (to - from));
+            // two-decimal speeds hit the HALF_UP ties far more often than arbitrary doubles
+            speeds[i] = random.nextBoolean() ? (1 + random.nextInt(99)) / 100.0 : 0.01 + random.nextDouble() * 0.98;
+            used[i] = random.nextBoolean();
+        }
+
+        for (int i = 0; i < SIZE; i++) {
+            double expected = serviceRating(prodDates[i], speeds[i], used[i]);
+            double actual = ShipRating.rating(ShipRating.yearOf(prodDates[i]), speeds[i], used[i]);
+            if (expected != actual) {
+                throw new IllegalStateException("Rating " + actual + " differs from " + expected
+                        + " for prodDate " + prodDates[i] + ", speed " + speeds[i] + ", isUsed " + used[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public double shipRating() {
+        int i = nextIndex();
+        return ShipRating.rating(ShipRating.yearOf(prodDates[i]), speeds[i], used[i]);
+    }
+
+    @Benchmark
+    public double controllerRating() {
+        int i = nextIndex();
+        return controllerRating(prodDates[i], speeds[i], used[i]);
+    }
+
+    @Benchmark
+    public double serviceRating() {
+        int i = nextIndex();
+        return serviceRating(prodDates[i], speeds[i], used[i]);
+    }
+
+    @Benchmark
+    public int yearOf() {
+        return ShipRating.yearOf(prodDates[nextIndex()]);
+    }
+
+    @Benchmark
+    public int calendarYear() {
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTime(new Date(prodDates[nextIndex()]));
+        return calendar.get(Calendar.YEAR);
+    }
+
+    private int nextIndex() {
+        return next = (next + 1) & (SIZE - 1);
+    }
+
+    private static double controllerRating(long prodDate, double speed, boolean isUsed) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(new Date(prodDate));
+        int year = calendar.get(Calendar.YEAR);
+        BigDecimal rating = new BigDecimal((80 * speed * (isUsed ? 0.5 : 1)) / (3019 - year + 1));
+        rating = rating.setScale(2, RoundingMode.HALF_UP);
+        return rating.doubleValue();
+    }
+
+    private static double serviceRating(long prodDate, double speed, boolean isUsed) {
+        double k = isUsed ? 0.5 : 1;
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTime(new Date(prodDate));
+        int prodYear = calendar.get(Calendar.YEAR);
+        BigDecimal rating = BigDecimal.valueOf((80 * speed * k) / (3019 - prodYear + 1)).setScale(2, RoundingMode.HALF_UP);
+        return rating.doubleValue();
+    }
+}
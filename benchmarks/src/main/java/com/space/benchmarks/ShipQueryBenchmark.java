@@ -0,0 +1,151 @@
+package com.space.benchmarks;
+
+import com.space.controller.ShipController;
+import com.space.controller.ShipOrder;
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /rest/ships} and {@code GET /rest/ships/count} through {@link ShipController}, without the servlet layer,
+ * for the filter combinations the UI sends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShipQueryBenchmark extends CosmoportState {
+    private static final int PAGE_SIZE = 20;
+
+    private ShipController controller;
+    // never sends If-None-Match, so every call builds its response
+    private final WebRequest request = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+    private final ShipFilter noFilter = new ShipFilter();
+    private final ShipFilter exactName = new ShipFilter();
+    private final ShipFilter nameSubstring = new ShipFilter();
+    private final ShipFilter typeAndUsed = new ShipFilter();
+    private final ShipFilter speedAndRating = new ShipFilter();
+    private final ShipFilter planetDateRating = new ShipFilter();
+    private final ShipFilter allFilters = new ShipFilter();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        controller = context.getBean(ShipController.class);
+
+        long after = new GregorianCalendar(2950, Calendar.JANUARY, 1).getTimeInMillis();
+        long before = new GregorianCalendar(3010, Calendar.JANUARY, 1).getTimeInMillis();
+
+        exactName.setName("-" + (ships / 2));
+        nameSubstring.setName("rion");
+        typeAndUsed.setShipType(ShipType.MERCHANT);
+        typeAndUsed.setIsUsed(true);
+        speedAndRating.setMinSpeed(0.3);
+        speedAndRating.setMaxSpeed(0.6);
+        speedAndRating.setMinRating(0.5);
+        planetDateRating.setPlanet("ar");
+        planetDateRating.setAfter(after);
+        planetDateRating.setMaxRating(2.0);
+
+        allFilters.setName("a");
+        allFilters.setPlanet("r");
+        allFilters.setShipType(ShipType.MILITARY);
+        allFilters.setAfter(after);
+        allFilters.setBefore(before);
+        allFilters.setIsUsed(false);
+        allFilters.setMinSpeed(0.1);
+        allFilters.setMaxSpeed(0.9);
+        allFilters.setMinCrewSize(10);
+        allFilters.setMaxCrewSize(9000);
+        allFilters.setMinRating(0.1);
+        allFilters.setMaxRating(5.0);
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Ship>> getAllShipsNoFilter() {
+        return controller.getAllShips(noFilter, ShipOrder.ID, 0, PAGE_SIZE, null, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Ship>> getAllShipsDeepPage() {
+        return controller.getAllShips(noFilter, ShipOrder.ID, ships / PAGE_SIZE / 2, PAGE_SIZE, null, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Ship>> getAllShipsFirstKeysetPage() {
+        return controller.getAllShips(noFilter, ShipOrder.RATING, 0, PAGE_SIZE, "", request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Ship>> getAllShipsByExactName() {
+        return controller.getAllShips(exactName, ShipOrder.ID, 0, PAGE_SIZE, null, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Ship>> getAllShipsByNameSubstring() {
+        return controller.getAllShips(nameSubstring, ShipOrder.SPEED, 0, PAGE_SIZE, null, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Ship>> getAllShipsByTypeAndUsed() {
+        return controller.getAllShips(typeAndUsed, ShipOrder.RATING, 0, PAGE_SIZE, null, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Ship>> getAllShipsBySpeedAndRating() {
+        return controller.getAllShips(speedAndRating, ShipOrder.SPEED, 0, PAGE_SIZE, null, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Ship>> getAllShipsByPlanetDateRating() {
+        return controller.getAllShips(planetDateRating, ShipOrder.DATE, 0, PAGE_SIZE, null, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Ship>> getAllShipsByAllFilters() {
+        return controller.getAllShips(allFilters, ShipOrder.RATING, 0, PAGE_SIZE, null, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<Long> getCountNoFilter() {
+        return controller.getCount(noFilter, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<Long> getCountByTypeAndUsed() {
+        return controller.getCount(typeAndUsed, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<Long> getCountByPlanetDateRating() {
+        return controller.getCount(planetDateRating, request).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<Long> getCountByAllFilters() {
+        return controller.getCount(allFilters, request).join();
+    }
+}
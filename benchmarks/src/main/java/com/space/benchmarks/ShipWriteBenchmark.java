@@ -0,0 +1,57 @@
+package com.space.benchmarks;
+
+import com.space.controller.ShipController;
+import com.space.model.Ship;
+import com.space.service.FleetGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /rest/ships} and {@code POST /rest/ships/{id}} through {@link ShipController}.
+ * Created ships stay in the table, so it grows during the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShipWriteBenchmark extends CosmoportState {
+
+    private ShipController controller;
+    private FleetGenerator fleet;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        controller = context.getBean(ShipController.class);
+        fleet = new FleetGenerator(7);
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public ResponseEntity<Ship> createShip() {
+        return controller.createShip(false, fleet.next()).join();
+    }
+
+    @Benchmark
+    public ResponseEntity<Ship> updateShip() {
+        Ship changes = new Ship();
+        changes.setSpeed((1 + random.nextInt(99)) / 100.0);
+        changes.setCrewSize(1 + random.nextInt(9999));
+        return controller.updateShip(String.valueOf(1 + random.nextInt(ships)), null, changes).join();
+    }
+}
@@ -0,0 +1,101 @@
+package com.space.benchmarks;
+
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipType;
+import com.space.repository.ShipQuery;
+import com.space.service.ShipService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning the request filters into a query, without running it: building the {@link ShipQuery} the service
+ * runs and binding it to a Hibernate query, against the {@link Specification} and Criteria query it replaced,
+ * kept as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecificationBenchmark extends CosmoportState {
+
+    private ShipService shipService;
+    private EntityManager entityManager;
+    private final ShipFilter filter = new ShipFilter();
+    private Specification<Ship> specification;
+    private ShipQuery shipQuery;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        shipService = context.getBean(ShipService.class);
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+
+        filter.setName("Falcon-1");
+        filter.setPlanet("ar");
+        filter.setShipType(ShipType.TRANSPORT);
+        filter.setAfter(26192246400000L);
+        filter.setBefore(33134745600000L);
+        filter.setIsUsed(true);
+        filter.setMinSpeed(0.2);
+        filter.setMaxSpeed(0.8);
+        filter.setMinCrewSize(100);
+        filter.setMaxCrewSize(5000);
+        filter.setMinRating(0.5);
+        filter.setMaxRating(3.0);
+        specification = shipService.selectBy(filter);
+        shipQuery = shipService.queryBy(filter);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeEntityManager() {
+        entityManager.close();
+    }
+
+    @Benchmark
+    public ShipQuery buildShipQuery() {
+        return shipService.queryBy(filter);
+    }
+
+    @Benchmark
+    public TypedQuery<Ship> bindShipQuery() {
+        TypedQuery<Ship> query = entityManager.createQuery(shipQuery.jpql("select s from Ship s", null), Ship.class);
+        shipQuery.bind(query);
+        return query;
+    }
+
+    @Benchmark
+    public Specification<Ship> buildSpecification() {
+        return shipService.selectBy(filter);
+    }
+
+    @Benchmark
+    public TypedQuery<Ship> buildQuery() {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        return entityManager.createQuery(query.select(root).where(predicate));
+    }
+}
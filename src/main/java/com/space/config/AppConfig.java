@@ -1,12 +1,29 @@
 package com.space.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import com.space.service.RequestStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
@@ -17,6 +34,9 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
@@ -25,12 +45,33 @@ import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.
 @EnableTransactionManagement
 @ComponentScan("com.space.service")
 @EnableJpaRepositories(basePackages = "com.space.repository")
+@PropertySource("classpath:cosmoport.properties")
+@PropertySource(value = "file:${cosmoport.config:cosmoport.properties}", ignoreResourceNotFound = true)
 public class AppConfig {
+    private static final String[] HIBERNATE_PROPERTIES = {
+            "hibernate.cache.use_second_level_cache",
+            "hibernate.cache.use_query_cache",
+            "hibernate.cache.region.factory_class",
+            "hibernate.javax.cache.provider",
+            "hibernate.javax.cache.uri",
+            "hibernate.generate_statistics",
+            "hibernate.jdbc.batch_size",
+            "hibernate.order_updates",
+            "hibernate.query.in_clause_parameter_padding"
+    };
+
+    private final Environment environment;
+
+    @Autowired
+    public AppConfig(Environment environment) {
+        this.environment = environment;
+    }
 
     @Bean
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+    @DependsOn("flyway")
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
-        em.setDataSource(dataSource());
+        em.setDataSource(dataSource);
         em.setPackagesToScan("com.space.model");
 
         JpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
@@ -40,15 +81,16 @@ public class AppConfig {
         return em;
     }
 
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
     @Profile("prod")
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/cosmoport?serverTimezone=UTC");
-        dataSource.setUsername("root");
-        dataSource.setPassword("root");
-        return dataSource;
+    public DataSource dataSource(MeterRegistry meterRegistry) {
+        return pool("cosmoport", environment.getRequiredProperty("db.url"),
+                environment.getRequiredProperty("db.username"), environment.getRequiredProperty("db.password"), meterRegistry);
     }
 
     @Profile("dev")
@@ -60,10 +102,51 @@ public class AppConfig {
                 .setType(H2)
                 .setScriptEncoding("UTF-8")
                 .ignoreFailedDrops(true)
-                .addScript("test.sql")
+                .addScript("classpath:db/h2/collation.sql")
                 .build();
     }
 
+    /**
+     * The data source of the active profile as the primary, plus a pool for each of {@code db.replica.urls}.
+     */
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(@Qualifier("dataSource") DataSource dataSource, MeterRegistry meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : environment.getProperty("db.replica.urls", String[].class, new String[0])) {
+            if (!url.trim().isEmpty()) {
+                replicas.add(pool("cosmoport-replica-" + (replicas.size() + 1), url.trim(),
+                        environment.getRequiredProperty("db.replica.username"),
+                        environment.getRequiredProperty("db.replica.password"), meterRegistry));
+            }
+        }
+        return new ReplicaRoutingDataSource(dataSource, replicas, environment.getRequiredProperty("db.replica.max-lag-ms", Long.class));
+    }
+
+    /**
+     * The data source everything else uses: primary or replica by transaction, counting statements and rows per request.
+     * The connection is only taken at the first statement, once the transaction is known to be read-only or not,
+     * so transactions that never reach the database take none.
+     */
+    @Primary
+    @Bean
+    public DataSource statementCountingDataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new StatementCountingDataSource(new LazyConnectionDataSourceProxy(routingDataSource));
+    }
+
+    /**
+     * Applies the versioned scripts from db/migration before JPA starts.
+     * A schema created by init.sql without migration history is baselined at V1.
+     */
+    @Bean(initMethod = "migrate")
+    public Flyway flyway(@Qualifier("dataSource") DataSource dataSource) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
     @Bean
     public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
         JpaTransactionManager transactionManager = new JpaTransactionManager();
@@ -77,9 +160,56 @@ public class AppConfig {
         return new PersistenceExceptionTranslationPostProcessor();
     }
 
+    @Bean
+    public HibernateMetrics hibernateMetrics(EntityManagerFactory emf, MeterRegistry meterRegistry) {
+        HibernateMetrics hibernateMetrics = new HibernateMetrics(emf.unwrap(SessionFactory.class), "cosmoport", Collections.emptyList());
+        hibernateMetrics.bindTo(meterRegistry);
+        return hibernateMetrics;
+    }
+
+    /**
+     * Counts the entities Hibernate loads for a request, from the database or the second-level cache.
+     */
+    @Bean
+    public PostLoadEventListener entityLoadCounter(EntityManagerFactory emf) {
+        PostLoadEventListener listener = event -> {
+            RequestStats stats = RequestStats.current();
+            if (stats != null) {
+                stats.entityLoaded();
+            }
+        };
+        emf.unwrap(SessionFactoryImplementor.class).getServiceRegistry().getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, listener);
+        return listener;
+    }
+
+    private HikariDataSource pool(String name, String url, String username, String password, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setDriverClassName(environment.getRequiredProperty("db.driver"));
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(environment.getRequiredProperty("db.pool.maximum-size", Integer.class));
+        dataSource.setMinimumIdle(environment.getRequiredProperty("db.pool.minimum-idle", Integer.class));
+        dataSource.setConnectionTimeout(environment.getRequiredProperty("db.pool.connection-timeout-ms", Long.class));
+        dataSource.setIdleTimeout(environment.getRequiredProperty("db.pool.idle-timeout-ms", Long.class));
+        dataSource.setMaxLifetime(environment.getRequiredProperty("db.pool.max-lifetime-ms", Long.class));
+        dataSource.setLeakDetectionThreshold(environment.getRequiredProperty("db.pool.leak-detection-threshold-ms", Long.class));
+        // active, idle and pending connections plus acquire (wait), usage and creation timers
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+
     private Properties additionalProperties() {
         Properties properties = new Properties();
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+        for (String name : HIBERNATE_PROPERTIES) {
+            String value = environment.getProperty(name);
+            if (value != null) {
+                properties.setProperty(name, value);
+            }
+        }
 
         return properties;
     }
@@ -0,0 +1,195 @@
+package com.space.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips JSON and text responses of more than {@code minSize} bytes for clients that accept it.
+ * The body is held back until it passes {@code minSize}; smaller ones go out as they are, with a Content-Length,
+ * since compressing them costs more than it saves. Larger ones are compressed as they are written,
+ * so streamed exports stay streamed.
+ * <p>
+ * A request processed asynchronously is finished on the async dispatch, which must be mapped to this filter too.
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+    private final int minSize;
+
+    public CompressionFilter(int minSize) {
+        this.minSize = minSize;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // on an async dispatch the response is the one wrapped by the first dispatch
+        CompressingResponse compressingResponse = WebUtils.getNativeResponse(response, CompressingResponse.class);
+        if (compressingResponse == null) {
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (acceptEncoding == null || !acceptEncoding.toLowerCase().contains("gzip")) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            compressingResponse = new CompressingResponse(response);
+            response = compressingResponse;
+        }
+
+        filterChain.doFilter(request, response);
+        if (!isAsyncStarted(request)) {
+            compressingResponse.finish();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType != null && (contentType.startsWith("text/") || contentType.contains("json"));
+    }
+
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+        private OutputStream target;
+        private long contentLength = -1;
+
+        private CompressingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (outputStream == null) {
+                outputStream = new CompressingOutputStream();
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (target == null) {
+                pending.reset();
+            }
+            super.resetBuffer();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        private void write(byte[] bytes, int offset, int length) throws IOException {
+            if (target == null) {
+                pending.write(bytes, offset, length);
+                if (pending.size() <= minSize) {
+                    return;
+                }
+                start();
+                return;
+            }
+            target.write(bytes, offset, length);
+        }
+
+        /**
+         * The body is past the threshold: pick the encoding, then send what was held back.
+         */
+        private void start() throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (isCompressible(getContentType()) && !response.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                target = new GZIPOutputStream(response.getOutputStream(), 8192, true);
+            } else {
+                if (contentLength >= 0) {
+                    response.setContentLengthLong(contentLength);
+                }
+                target = response.getOutputStream();
+            }
+            pending.writeTo(target);
+            pending.reset();
+        }
+
+        private void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) target).finish();
+            } else if (target == null && pending.size() > 0) {
+                getResponse().setContentLength(pending.size());
+                pending.writeTo(getResponse().getOutputStream());
+            }
+        }
+
+        private final class CompressingOutputStream extends ServletOutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                CompressingResponse.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                CompressingResponse.this.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (target != null) {
+                    target.flush();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException("Non-blocking writes are not compressed");
+            }
+        }
+    }
+}
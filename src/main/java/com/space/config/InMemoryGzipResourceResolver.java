@@ -0,0 +1,131 @@
+package com.space.config;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.CachingResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves text resources gzip-encoded to clients that accept it.
+ * Each resource is compressed once and kept in memory by the {@link CachingResourceResolver} in front of this one,
+ * which caches per content coding, so a request only copies the compressed bytes.
+ * <p>
+ * Register it before the {@code VersionResourceResolver}, so that content hashes are computed on the original files.
+ */
+public class InMemoryGzipResourceResolver extends AbstractResourceResolver {
+    private static final Set<String> COMPRESSIBLE = new HashSet<>(Arrays.asList("css", "js", "map", "html", "svg", "json", "txt"));
+
+    @Override
+    protected Resource resolveResourceInternal(@Nullable HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource == null || request == null || !acceptsGzip(request)
+                || !COMPRESSIBLE.contains(StringUtils.getFilenameExtension(resource.getFilename()))) {
+            return resource;
+        }
+
+        try {
+            byte[] gzipped = gzip(resource);
+            return gzipped.length < resource.contentLength() ? new GzippedResource(resource, gzipped) : resource;
+        } catch (IOException e) {
+            logger.warn("Cannot gzip " + resource, e);
+            return resource;
+        }
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+                                            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static byte[] gzip(Resource resource) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) resource.contentLength() / 4);
+        try (InputStream in = resource.getInputStream(); OutputStream out = new GZIPOutputStream(bytes)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class GzippedResource extends AbstractResource implements HttpResource {
+        private final Resource original;
+        private final byte[] gzipped;
+
+        private GzippedResource(Resource original, byte[] gzipped) {
+            this.original = original;
+            this.gzipped = gzipped;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(gzipped);
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return gzipped.length;
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return original.lastModified();
+        }
+
+        @Override
+        public String getFilename() {
+            return original.getFilename();
+        }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException {
+            return original.createRelative(relativePath);
+        }
+
+        @Override
+        public String getDescription() {
+            return "gzipped " + original.getDescription();
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            if (original instanceof HttpResource) {
+                headers.putAll(((HttpResource) original).getResponseHeaders());
+            }
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            return headers;
+        }
+    }
+}
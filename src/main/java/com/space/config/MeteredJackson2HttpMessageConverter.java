@@ -0,0 +1,81 @@
+package com.space.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.service.RequestStats;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Counts the JSON bytes written for a request into its {@link RequestStats}. When the client asked for the
+ * {@value RequestMetricsInterceptor#DEBUG_HEADER} header, the body is held back until it is complete
+ * so that the header can carry the final counts.
+ */
+public class MeteredJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public MeteredJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        RequestStats stats = RequestStats.current();
+        if (stats == null) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+
+        if (!stats.isDebug()) {
+            CountingOutputStream body = new CountingOutputStream(outputMessage.getBody());
+            super.writeInternal(object, type, message(outputMessage.getHeaders(), body));
+            stats.jsonWritten(body.count);
+            return;
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        super.writeInternal(object, type, message(outputMessage.getHeaders(), body));
+        stats.jsonWritten(body.size());
+        outputMessage.getHeaders().set(RequestMetricsInterceptor.DEBUG_HEADER, stats.toString());
+        body.writeTo(outputMessage.getBody());
+    }
+
+    private static HttpOutputMessage message(HttpHeaders headers, OutputStream body) {
+        return new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
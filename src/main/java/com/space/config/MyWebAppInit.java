@@ -1,16 +1,37 @@
 package com.space.config;
 
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterRegistration;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import java.util.EnumSet;
 
 public class MyWebAppInit extends AbstractAnnotationConfigDispatcherServletInitializer {
+    /**
+     * REST responses up to this many bytes are sent uncompressed.
+     */
+    public static final int COMPRESSION_MIN_SIZE = 1024;
 
     @Override
     public void onStartup(ServletContext servletContext) throws ServletException {
         super.onStartup(servletContext);
         servletContext.setInitParameter("spring.profiles.active", "prod");
+        FilterRegistration.Dynamic compressionFilter =
+                servletContext.addFilter("compressionFilter", new CompressionFilter(COMPRESSION_MIN_SIZE));
+        compressionFilter.setAsyncSupported(true);
+        compressionFilter.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC), false, "/rest/*");
+    }
+
+    /**
+     * Rewrites the resource URLs that pages build with {@code <c:url>} to their content-hashed versions.
+     */
+    @Override
+    protected Filter[] getServletFilters() {
+        return new Filter[]{new ResourceUrlEncodingFilter()};
     }
 
     @Override
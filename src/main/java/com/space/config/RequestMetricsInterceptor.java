@@ -0,0 +1,91 @@
+package com.space.config;
+
+import com.space.service.RequestStats;
+import com.space.service.ShipQueryProfiler;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per endpoint, tagged with method, uri pattern and status:
+ * <ul>
+ * <li>{@code http.server.requests}: latency, with p50, p99 and p999 under {@code http.server.requests.percentile}</li>
+ * <li>{@code http.server.requests.statements}: SQL statements executed, see below</li>
+ * <li>{@code http.server.requests.rows}: result set rows read, see below</li>
+ * <li>{@code http.server.requests.entities}: entities loaded by Hibernate, from the database or its cache</li>
+ * <li>{@code http.server.requests.json}: bytes of JSON written</li>
+ * </ul>
+ * A request sending the {@value #DEBUG_HEADER} header gets its own counts back in a header of that name.
+ * Statements and rows cost a wrapper around every JDBC object, so they are only counted, and recorded, with
+ * {@code ships.request-stats.count-statements}, for requests sending the header and while the profiler is on.
+ * An async request is recorded once, when its async dispatch completes.
+ */
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+    public static final String DEBUG_HEADER = "X-Request-Stats";
+
+    private static final String STATS_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".stats";
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final MeterRegistry meterRegistry;
+    private final boolean countStatements;
+    private final ShipQueryProfiler profiler;
+
+    public RequestMetricsInterceptor(MeterRegistry meterRegistry, boolean countStatements, ShipQueryProfiler profiler) {
+        this.meterRegistry = meterRegistry;
+        this.countStatements = countStatements;
+        this.profiler = profiler;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestStats stats = (RequestStats) request.getAttribute(STATS_ATTRIBUTE);
+        if (stats == null) {
+            boolean debug = request.getHeader(DEBUG_HEADER) != null;
+            stats = new RequestStats(debug, countStatements || debug || profiler.isEnabled(), false);
+            request.setAttribute(STATS_ATTRIBUTE, stats);
+        }
+        RequestStats.bind(stats);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestStats.bind(null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestStats.bind(null);
+        RequestStats stats = (RequestStats) request.getAttribute(STATS_ATTRIBUTE);
+        if (stats == null) {
+            return;
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(),
+                "uri", pattern == null ? "UNKNOWN" : pattern.toString(),
+                "status", String.valueOf(response.getStatus()));
+        Timer.builder("http.server.requests")
+                .tags(tags)
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry)
+                .record(stats.getElapsedNanos(), TimeUnit.NANOSECONDS);
+        if (stats.isCountingStatements()) {
+            record("http.server.requests.statements", tags, stats.getStatements());
+            record("http.server.requests.rows", tags, stats.getRows());
+        }
+        record("http.server.requests.entities", tags, stats.getEntities());
+        record("http.server.requests.json", tags, stats.getJsonBytes());
+    }
+
+    private void record(String name, Tags tags, long amount) {
+        DistributionSummary.builder(name).tags(tags).register(meterRegistry).record(amount);
+    }
+}
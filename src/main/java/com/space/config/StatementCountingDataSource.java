@@ -0,0 +1,127 @@
+package com.space.config;
+
+import com.space.service.RequestStats;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the statements executed and the result set rows read through it into the {@link RequestStats} bound
+ * to the thread at the time, if any. Stats that capture also get the SQL and bound parameters of each statement.
+ * A JDBC batch counts as one statement: it is one round trip.
+ * <p>
+ * Only stats that {@linkplain RequestStats#isCountingStatements() count statements} get the connection, its statements
+ * and their result sets wrapped. Taken or created while no such stats are bound, they are the ones of the pool.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    private static boolean counting() {
+        RequestStats stats = RequestStats.current();
+        return stats != null && stats.isCountingStatements();
+    }
+
+    private static Connection counting(Connection connection) {
+        if (!counting()) {
+            return connection;
+        }
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType()) && counting()) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return proxy(method.getReturnType(), new CountingStatement((Statement) result, sql));
+            }
+            return result;
+        });
+    }
+
+    private static final class CountingStatement implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final List<Object> parameters = new ArrayList<>();
+
+        private CountingStatement(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            RequestStats stats = RequestStats.current();
+            if (stats == null || !stats.isCountingStatements()) {
+                return StatementCountingDataSource.invoke(statement, method, args);
+            }
+            if (stats.isCapturing()) {
+                capture(name, args);
+            }
+            if (name.startsWith("execute")) {
+                String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                stats.statementExecuted(executed, stats.isCapturing() ? new ArrayList<>(parameters) : null);
+            }
+
+            Object result = StatementCountingDataSource.invoke(statement, method, args);
+            if (result instanceof ResultSet) {
+                return proxy(ResultSet.class, countingResultSet((ResultSet) result, stats));
+            }
+            return result;
+        }
+
+        private void capture(String name, Object[] args) {
+            if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                int index = (Integer) args[0];
+                while (parameters.size() < index) {
+                    parameters.add(null);
+                }
+                parameters.set(index - 1, name.equals("setNull") ? null : args[1]);
+            }
+        }
+    }
+
+    private static InvocationHandler countingResultSet(ResultSet resultSet, RequestStats stats) {
+        return (proxy, method, args) -> {
+            Object result = invoke(resultSet, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                stats.rowRead();
+            }
+            return result;
+        };
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.space.controller;
+
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/rest/metrics")
+public class MetricsController {
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public MetricsController(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Current value of every registered meter, keyed by {@code name{tag=value,...}}.
+     *
+     * @param prefix only meters whose name starts with it, e.g. {@code hikaricp}
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Map<String, Double>>> getMetrics(
+            @RequestParam(value = "prefix", required = false, defaultValue = "") String prefix) {
+        Map<String, Map<String, Double>> metrics = new TreeMap<>();
+        for (Meter meter : meterRegistry.getMeters()) {
+            Meter.Id id = meter.getId();
+            if (!id.getName().startsWith(prefix)) {
+                continue;
+            }
+
+            Map<String, Double> values = new LinkedHashMap<>();
+            for (Measurement measurement : meter.measure()) {
+                values.put(measurement.getStatistic().getTagValueRepresentation(), measurement.getValue());
+            }
+            metrics.put(key(id), values);
+        }
+        return new ResponseEntity<>(metrics, HttpStatus.OK);
+    }
+
+    private static String key(Meter.Id id) {
+        StringBuilder key = new StringBuilder(id.getName());
+        String separator = "{";
+        for (Tag tag : id.getTagsAsIterable()) {
+            key.append(separator).append(tag.getKey()).append('=').append(tag.getValue());
+            separator = ",";
+        }
+        if (!separator.equals("{")) {
+            key.append('}');
+        }
+        return key.toString();
+    }
+}
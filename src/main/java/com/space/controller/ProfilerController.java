@@ -0,0 +1,52 @@
+package com.space.controller;
+
+import com.space.service.ShipQueryProfiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/rest/profiler")
+public class ProfilerController {
+    private final ShipQueryProfiler profiler;
+
+    @Autowired
+    public ProfilerController(ShipQueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * The query shapes with the highest mean time, slowest first, with the plans of the slow ones.
+     */
+    @GetMapping
+    public ResponseEntity<List<ShipQueryProfiler.ShapeStats>> getSlowestShapes(
+            @RequestParam(value = "top", required = false, defaultValue = "10") Integer top) {
+        if (top < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(profiler.report(top), HttpStatus.OK);
+    }
+
+    /**
+     * Switches profiling on or off on this node, whatever {@code ships.profiler.enabled} said at startup.
+     */
+    @PutMapping
+    public ResponseEntity<?> setEnabled(@RequestParam("enabled") Boolean enabled) {
+        profiler.setEnabled(enabled);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> reset() {
+        profiler.reset();
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+}
@@ -1,171 +1,353 @@
 package com.space.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.space.exceptions.BadRequestException;
+import com.space.exceptions.PreconditionFailedException;
 import com.space.model.Ship;
-import com.space.model.ShipType;
+import com.space.model.ShipFilter;
+import com.space.service.BatchResult;
+import com.space.service.ShipRating;
 import com.space.service.ShipService;
+import com.space.service.ShipTaskExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Requests that go to the database return a future run by {@link ShipTaskExecutor}, so in async mode the container
+ * thread is released while the query runs. Input checks and 304 answers stay on the container thread.
+ */
 @RestController
 @RequestMapping("/rest/ships")
 public class ShipController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ShipService shipService;
+    private final ObjectMapper objectMapper;
+    private final ShipTaskExecutor executor;
     public static long counter;
 
     @Autowired
-    public ShipController(ShipService shipService) {
+    public ShipController(ShipService shipService, ObjectMapper objectMapper, ShipTaskExecutor executor) {
         this.shipService = shipService;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
     }
 
     @GetMapping
-    public ResponseEntity<List<Ship>> getAllShips(
-            @RequestParam(value = "name", required = false) String name,
-            @RequestParam(value = "planet", required = false) String planet,
-            @RequestParam(value = "shipType", required = false) ShipType shipType,
-            @RequestParam(value = "after", required = false) Long after,
-            @RequestParam(value = "before", required = false) Long before,
-            @RequestParam(value = "isUsed", required = false) Boolean isUsed,
-            @RequestParam(value = "minSpeed", required = false) Double minSpeed,
-            @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
-            @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
-            @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
-            @RequestParam(value = "minRating", required = false) Double minRating,
-            @RequestParam(value = "maxRating", required = false) Double maxRating,
+    public CompletableFuture<ResponseEntity<List<Ship>>> getAllShips(
+            ShipFilter filter,
             @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
             @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
-            @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize) {
+            @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest request) {
+
+        if (request.checkNotModified(tableETag())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (cursor != null) {
+            ShipCursor from = ShipCursor.decode(cursor, order);
+            return executor.submit(() -> getShipsAfter(filter, order, pageSize, from));
+        }
 
         Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName()));
 
-        Specification<Ship> specification = Specification.where(shipService.selectByName(name)
-                .and(shipService.selectByPlanet(planet))
-                .and(shipService.selectByProdDate(after, before))
-                .and(shipService.selectByUse(isUsed))
-                .and(shipService.selectBySpeed(minSpeed, maxSpeed))
-                .and(shipService.selectByCrewSize(minCrewSize, maxCrewSize))
-                .and(shipService.selectByShipType(shipType))
-                .and(shipService.selectByRating(minRating, maxRating)));
+        return executor.submit(() -> new ResponseEntity<>(shipService.getShipsPage(filter, pageable).getContent(), HttpStatus.OK));
+    }
+
+    /**
+     * Keyset pagination: returns the ships that follow {@code from} (or the first page when it is {@code null})
+     * and puts the cursor of the next page into the {@value #NEXT_CURSOR_HEADER} header.
+     */
+    private ResponseEntity<List<Ship>> getShipsAfter(ShipFilter filter, ShipOrder order, Integer pageSize, ShipCursor from) {
+        if (pageSize < 1) {
+            throw new BadRequestException();
+        }
+
+        Sort sort = order == ShipOrder.ID ? Sort.by("id") : Sort.by(order.getFieldName(), "id");
+        List<Ship> ships = from == null
+                ? shipService.getShipsSlice(filter, null, null, null, sort, pageSize)
+                : shipService.getShipsSlice(filter, order.getFieldName(), from.getSortKey(), from.getId(), sort, pageSize);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (ships.size() == pageSize) {
+            headers.set(NEXT_CURSOR_HEADER, ShipCursor.after(order, ships.get(ships.size() - 1)).encode());
+        }
+        return new ResponseEntity<>(ships, headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/page")
+    public CompletableFuture<ResponseEntity<ShipPage>> getShipsPage(
+            ShipFilter filter,
+            @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
+            @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
+            @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+            WebRequest request) {
+
+        if (request.checkNotModified(tableETag())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName()));
 
-        return new ResponseEntity<>(shipService.getShipsList(specification, pageable).getContent(), HttpStatus.OK);
+        return executor.submit(() -> {
+            Page<Ship> page = shipService.getShipsPage(filter, pageable);
+            return new ResponseEntity<>(new ShipPage(page.getContent(), page.getTotalElements()), HttpStatus.OK);
+        });
     }
 
+    /**
+     * Streams every ship matching the filter, ordered by id, straight to the response, whatever the result size.
+     */
+    @GetMapping("/export")
+    public void exportShips(ShipFilter filter,
+                            @RequestParam(value = "format", required = false, defaultValue = "NDJSON") ExportFormat format,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ships." + format.getExtension() + "\"");
+
+        Specification<Ship> specification = shipService.selectBy(filter);
+        if (format == ExportFormat.CSV) {
+            exportCsv(specification, response.getOutputStream());
+        } else {
+            exportNdjson(specification, response.getOutputStream());
+        }
+    }
+
+    /**
+     * The ETag goes into the returned entity, which Spring MVC answers with 304 when it matches {@code If-None-Match}.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Ship> getShip(@PathVariable("id") Long id) {
+    public CompletableFuture<ResponseEntity<Ship>> getShip(@PathVariable("id") Long id) {
         if (id == null || id <= 0) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
-        Ship ship = this.shipService.getById(id);
-        if (ship == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>(ship, HttpStatus.OK);
+        return executor.submit(() -> {
+            Ship ship = this.shipService.getById(id);
+            if (ship == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            return ResponseEntity.ok().eTag(shipETag(ship)).body(ship);
+        });
     }
 
     @GetMapping("/count")
-    public ResponseEntity<Integer> getCount(@RequestParam(value = "name", required = false) String name,
-                                            @RequestParam(value = "planet", required = false) String planet,
-                                            @RequestParam(value = "shipType", required = false) ShipType shipType,
-                                            @RequestParam(value = "after", required = false) Long after,
-                                            @RequestParam(value = "before", required = false) Long before,
-                                            @RequestParam(value = "isUsed", required = false) Boolean isUsed,
-                                            @RequestParam(value = "minSpeed", required = false) Double minSpeed,
-                                            @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
-                                            @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
-                                            @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
-                                            @RequestParam(value = "minRating", required = false) Double minRating,
-                                            @RequestParam(value = "maxRating", required = false) Double maxRating) {
-
-        Specification<Ship> specification = Specification.where(shipService.selectByName(name)
-                .and(shipService.selectByPlanet(planet))
-                .and(shipService.selectByShipType(shipType))
-                .and(shipService.selectByProdDate(after, before))
-                .and(shipService.selectByUse(isUsed))
-                .and(shipService.selectBySpeed(minSpeed, maxSpeed))
-                .and(shipService.selectByCrewSize(minCrewSize, maxCrewSize))
-                .and(shipService.selectByRating(minRating, maxRating)));
-
-        return new ResponseEntity<>(shipService.getShipsCount(specification), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<Long>> getCount(ShipFilter filter, WebRequest request) {
+        if (request.checkNotModified(tableETag())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return executor.submit(() -> new ResponseEntity<>(shipService.countShips(filter), HttpStatus.OK));
     }
 
     @PostMapping
-    public ResponseEntity<Ship> createShip(@RequestParam(defaultValue = "false") Boolean isUsed,
-                                           @RequestBody Ship ship) {
-        if (ship.getName() == null
-                || ship.getPlanet() == null
-                || ship.getShipType() == null
-                || ship.getProdDate() == null
-                || ship.getSpeed() == null
-                || ship.getCrewSize() == null) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    public CompletableFuture<ResponseEntity<Ship>> createShip(@RequestParam(defaultValue = "false") Boolean isUsed,
+                                                              @RequestBody Ship ship) {
+        if (!prepareNewShip(ship, isUsed)) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
 
-        if (ship.getUsed() == null) {
-            ship.setUsed(isUsed);
+        return executor.submit(() -> {
+            this.shipService.create(ship);
+            return new ResponseEntity<>(ship, HttpStatus.OK);
+        });
+    }
+
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<List<BatchResult>>> createShips(@RequestParam(defaultValue = "false") Boolean isUsed,
+                                                         @RequestBody List<Ship> ships) {
+        BatchResult[] results = new BatchResult[ships.size()];
+        List<Ship> newShips = new ArrayList<>(ships.size());
+        for (int i = 0; i < ships.size(); i++) {
+            Ship ship = ships.get(i);
+            if (ship == null || !prepareNewShip(ship, isUsed)) {
+                results[i] = new BatchResult(i, null, HttpStatus.BAD_REQUEST);
+                continue;
+            }
+            newShips.add(ship);
         }
 
-        Calendar calendar = new GregorianCalendar();
-        calendar.setTime(ship.getProdDate());
-        int year = calendar.get(Calendar.YEAR);
+        return executor.submit(() -> {
+            shipService.createAll(newShips);
 
-        if (ship.getName().length() == 0
-                || ship.getName().length() > 50
-                || ship.getPlanet().length() == 0
-                || ship.getPlanet().length() > 50
-                || ship.getSpeed() < 0.01
-                || ship.getSpeed() > 0.99
-                || ship.getCrewSize() < 1
-                || ship.getCrewSize() > 9999
-                || year < 2800
-                || year > 3019) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        }
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = new BatchResult(i, ships.get(i).getId(), HttpStatus.OK);
+                }
+            }
+            return new ResponseEntity<>(Arrays.asList(results), HttpStatus.OK);
+        });
+    }
 
-        ship.setRating(getRating(ship));
-        this.shipService.create(ship);
+    @PostMapping("/batch/update")
+    public CompletableFuture<ResponseEntity<List<BatchResult>>> updateShips(@RequestBody List<Ship> ships) {
+        return executor.submit(() -> new ResponseEntity<>(shipService.updateAll(ships), HttpStatus.OK));
+    }
 
-        return new ResponseEntity<>(ship, HttpStatus.OK);
+    @PostMapping("/batch/delete")
+    public CompletableFuture<ResponseEntity<List<BatchResult>>> deleteShips(@RequestBody List<Long> ids) {
+        return executor.submit(() -> new ResponseEntity<>(shipService.deleteAll(ids), HttpStatus.OK));
     }
 
+    /**
+     * With an {@code If-Match} header, the ship is only updated if its ETag is still the one given,
+     * otherwise the response is 412. An update racing with another one is rejected with 409.
+     */
     @PostMapping("/{id}")
-    public ResponseEntity<Ship> updateShip(@PathVariable String id,
-                                           @RequestBody Ship ship) {
-        Long longId = shipService.checkId(id);
-        Ship newShip = shipService.update(longId, ship);
+    public CompletableFuture<ResponseEntity<Ship>> updateShip(@PathVariable String id,
+                                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                              @RequestBody Ship ship) {
+        Long shipId = shipService.parseId(id);
+        Long expectedVersion = ifMatch == null ? null : expectedVersion(shipId, ifMatch);
 
-        return new ResponseEntity<>(newShip, HttpStatus.OK);
+        return executor.submit(() -> {
+            Ship newShip = shipService.update(shipId, ship, expectedVersion);
+            return ResponseEntity.ok().eTag(shipETag(newShip)).body(newShip);
+        });
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteShipById(@PathVariable String id) {
-        Long longId = shipService.checkId(id);
-        shipService.delete(longId);
-        return new ResponseEntity<>(HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<?>> deleteShipById(@PathVariable String id) {
+        Long shipId = shipService.parseId(id);
+        return executor.submit(() -> {
+            shipService.delete(shipId);
+            return new ResponseEntity<>(HttpStatus.OK);
+        });
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleConcurrentUpdate() {
+        return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Lists and counts change only when the table does.
+     */
+    private String tableETag() {
+        return "ships-" + shipService.getTableVersion();
+    }
+
+    private static String shipETag(Ship ship) {
+        return ship.getId() + "-" + ship.getVersion();
+    }
+
+    /**
+     * The version in an {@code If-Match} ETag of the ship, 412 if it is not one.
+     */
+    private static Long expectedVersion(Long id, String ifMatch) {
+        String prefix = "\"" + id + "-";
+        if (!ifMatch.startsWith(prefix) || !ifMatch.endsWith("\"") || ifMatch.length() <= prefix.length() + 1) {
+            throw new PreconditionFailedException();
+        }
+        try {
+            return Long.parseLong(ifMatch.substring(prefix.length(), ifMatch.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException();
+        }
+    }
+
+    private void exportNdjson(Specification<Ship> specification, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Ship.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            shipService.exportShips(specification, ship -> {
+                try {
+                    writer.writeValue(generator, ship);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
     }
 
-    public double isUsed(Boolean isUsed) {
-        return isUsed ? 0.5 : 1.0;
+    private void exportCsv(Specification<Ship> specification, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,name,planet,shipType,prodDate,isUsed,speed,crewSize,rating\n");
+        StringBuilder line = new StringBuilder();
+        shipService.exportShips(specification, ship -> {
+            line.setLength(0);
+            line.append(ship.getId()).append(',');
+            appendCsv(line, ship.getName()).append(',');
+            appendCsv(line, ship.getPlanet()).append(',');
+            line.append(ship.getShipType()).append(',')
+                    .append(ship.getProdDate().getTime()).append(',')
+                    .append(ship.getUsed()).append(',')
+                    .append(ship.getSpeed()).append(',')
+                    .append(ship.getCrewSize()).append(',')
+                    .append(ship.getRating()).append('\n');
+            try {
+                writer.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
     }
 
-    public double getRating(Ship ship) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(ship.getProdDate());
-        int year = calendar.get(Calendar.YEAR);
-        BigDecimal rating = new BigDecimal((80 * ship.getSpeed() * (ship.getUsed() ? 0.5 : 1)) /
-                (3019 - year + 1));
-        rating = rating.setScale(2, RoundingMode.HALF_UP);
-        return rating.doubleValue();
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * Checks a ship sent for creation and fills in {@code isUsed} when the body has none.
+     *
+     * @return {@code false} if the ship must be rejected with 400
+     */
+    private boolean prepareNewShip(Ship ship, Boolean isUsed) {
+        if (ship.getName() == null
+                || ship.getPlanet() == null
+                || ship.getShipType() == null
+                || ship.getProdDate() == null
+                || ship.getSpeed() == null
+                || ship.getCrewSize() == null) {
+            return false;
+        }
+
+        if (ship.getUsed() == null) {
+            ship.setUsed(isUsed);
+        }
+
+        int year = ShipRating.yearOf(ship.getProdDate().getTime());
+
+        return ship.getName().length() != 0
+                && ship.getName().length() <= 50
+                && ship.getPlanet().length() != 0
+                && ship.getPlanet().length() <= 50
+                && ship.getSpeed() >= 0.01
+                && ship.getSpeed() <= 0.99
+                && ship.getCrewSize() >= 1
+                && ship.getCrewSize() <= 9999
+                && year >= 2800
+                && year <= 3019;
     }
 }
 
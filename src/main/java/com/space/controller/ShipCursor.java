@@ -0,0 +1,108 @@
+package com.space.controller;
+
+import com.space.exceptions.BadRequestException;
+import com.space.model.Ship;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset pagination cursor: the sort key and id of the last ship of a page.
+ * The next page starts right after this {@code (sortKey, id)} pair, so it costs as much as the first one.
+ */
+public class ShipCursor {
+    private static final String SEPARATOR = ":";
+
+    private final ShipOrder order;
+    private final Comparable<?> sortKey;
+    private final long id;
+
+    private ShipCursor(ShipOrder order, Comparable<?> sortKey, long id) {
+        this.order = order;
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    public static ShipCursor after(ShipOrder order, Ship ship) {
+        return new ShipCursor(order, sortKeyOf(order, ship), ship.getId());
+    }
+
+    /**
+     * @return the decoded cursor or {@code null} for an empty token, which stands for the first page
+     */
+    public static ShipCursor decode(String token, ShipOrder order) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
+        }
+        if (parts.length != 3 || !parts[0].equals(order.name())) {
+            throw new BadRequestException();
+        }
+
+        try {
+            return new ShipCursor(order, parseSortKey(order, parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    public String encode() {
+        String key;
+        if (sortKey == null) {
+            key = "";
+        } else if (sortKey instanceof Date) {
+            key = String.valueOf(((Date) sortKey).getTime());
+        } else {
+            key = sortKey.toString();
+        }
+        String raw = order.name() + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ShipOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * @return the value of the sort column, {@code null} when ships are ordered by id
+     */
+    public Comparable<?> getSortKey() {
+        return sortKey;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    private static Comparable<?> sortKeyOf(ShipOrder order, Ship ship) {
+        switch (order) {
+            case SPEED:
+                return ship.getSpeed();
+            case DATE:
+                return ship.getProdDate();
+            case RATING:
+                return ship.getRating();
+            default:
+                return null;
+        }
+    }
+
+    private static Comparable<?> parseSortKey(ShipOrder order, String value) {
+        switch (order) {
+            case SPEED:
+            case RATING:
+                return Double.parseDouble(value);
+            case DATE:
+                return new Date(Long.parseLong(value));
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.space.controller;
+
+import com.space.model.Ship;
+
+import java.util.List;
+
+/**
+ * One page of ships together with the total number of ships matching the filter.
+ */
+public class ShipPage {
+
+    private final List<Ship> ships;
+    private final long count;
+
+    public ShipPage(List<Ship> ships, long count) {
+        this.ships = ships;
+        this.count = count;
+    }
+
+    public List<Ship> getShips() {
+        return ships;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
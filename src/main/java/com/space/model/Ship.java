@@ -1,10 +1,16 @@
 package com.space.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.Date;
 
 @Entity
 @Table(name = "ship")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ship")
 public class Ship {
 
     @Id
@@ -37,6 +43,14 @@ public class Ship {
     @Column(name = "rating")
     private Double rating;
 
+    /**
+     * Incremented by Hibernate on every update, which fails if another transaction changed the ship first.
+     */
+    @Version
+    @Column(name = "version")
+    @JsonIgnore
+    private Long version;
+
     public Ship(Long id,
                 String name,
                 String planet,
@@ -133,6 +147,14 @@ public class Ship {
         this.rating = rating;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Ship{" +
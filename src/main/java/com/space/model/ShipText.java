@@ -0,0 +1,82 @@
+package com.space.model;
+
+import java.text.Normalizer;
+
+/**
+ * How the name and planet filters match, the same on every path: the text is a plain substring,
+ * {@code %} and {@code _} included, compared like MySQL's {@code utf8_general_ci}, ignoring case and accents.
+ * <p>
+ * Folding maps each character to exactly one character, so a folded text has the length of the original.
+ */
+public final class ShipText {
+    /**
+     * Escape character of {@link #likePattern(String)}. Not a backslash, which MySQL string literals treat specially.
+     */
+    public static final char LIKE_ESCAPE = '!';
+
+    private static final char[] FOLDED = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLDED.length; c++) {
+            FOLDED[c] = foldSlowly(c);
+        }
+    }
+
+    private ShipText() {
+    }
+
+    public static String fold(String text) {
+        char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(text.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    /**
+     * Whether {@code text} contains {@code folded}, the result of {@link #fold(String)}, without folding a copy of it.
+     */
+    public static boolean contains(String text, String folded) {
+        int last = text.length() - folded.length();
+        for (int i = 0; i <= last; i++) {
+            int j = 0;
+            while (j < folded.length() && fold(text.charAt(i + j)) == folded.charAt(j)) {
+                j++;
+            }
+            if (j == folded.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The {@code LIKE} pattern of the texts containing {@code text}, to use with {@link #LIKE_ESCAPE}.
+     */
+    public static String likePattern(String text) {
+        StringBuilder pattern = new StringBuilder(text.length() + 2).append('%');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    private static char fold(char c) {
+        return c < FOLDED.length ? FOLDED[c] : foldSlowly(c);
+    }
+
+    /**
+     * The base letter of the canonical decomposition, upper case.
+     */
+    private static char foldSlowly(char c) {
+        if (Character.isSurrogate(c)) {
+            return c;
+        }
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        return Character.toUpperCase(decomposed.charAt(0));
+    }
+}
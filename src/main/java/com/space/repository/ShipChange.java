@@ -0,0 +1,28 @@
+package com.space.repository;
+
+/**
+ * A row of the {@code ship_change} feed: a ship some transaction created, updated or deleted, and the node it ran on.
+ */
+public final class ShipChange {
+    private final long id;
+    private final long shipId;
+    private final long node;
+
+    public ShipChange(long id, long shipId, long node) {
+        this.id = id;
+        this.shipId = shipId;
+        this.node = node;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getShipId() {
+        return shipId;
+    }
+
+    public long getNode() {
+        return node;
+    }
+}
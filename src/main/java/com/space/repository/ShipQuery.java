@@ -0,0 +1,323 @@
+package com.space.repository;
+
+import com.space.model.ShipText;
+import com.space.model.ShipType;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.Query;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The conditions of a ship query as a shape, which parameters are present and how, plus their values.
+ * <p>
+ * The JPQL text depends on the shape only, so it is built once per shape and sort and the values are bound
+ * as parameters. Hibernate caches its translation of each JPQL text, so a repeated shape costs parameter binding,
+ * not the Criteria tree and SQL rendering a {@link org.springframework.data.jpa.domain.Specification} goes through.
+ */
+public final class ShipQuery {
+    private static final Set<String> SORTABLE = new HashSet<>(Arrays.asList(
+            "id", "name", "planet", "shipType", "prodDate", "isUsed", "speed", "crewSize", "rating"));
+    private static final Map<String, String> JPQL = new ConcurrentHashMap<>();
+
+    // two bits per condition: none, lower bound only, upper bound only, both; or none, LIKE, ids
+    private static final int LIKE = 1;
+    private static final int IDS = 2;
+    private static final int MIN = 1;
+    private static final int MAX = 2;
+    private static final int NAME = 0;
+    private static final int PLANET = 2;
+    private static final int SHIP_TYPE = 4;
+    private static final int PROD_DATE = 6;
+    private static final int USED = 8;
+    private static final int SPEED = 10;
+    private static final int CREW_SIZE = 12;
+    private static final int RATING = 14;
+    private static final int ID = 16;
+    private static final int AFTER = 18;
+
+    private int shape;
+    private boolean empty;
+    private String name;
+    private Collection<Long> nameIds;
+    private String planet;
+    private Collection<Long> planetIds;
+    private ShipType shipType;
+    private Date after;
+    private Date before;
+    private Boolean isUsed;
+    private Double minSpeed;
+    private Double maxSpeed;
+    private Integer minCrewSize;
+    private Integer maxCrewSize;
+    private Double minRating;
+    private Double maxRating;
+    private Collection<Long> ids;
+    private String afterField;
+    private Object afterKey;
+    private Long afterId;
+
+    /**
+     * Ships whose name contains {@code text}: the ids found by the search index, or a {@code LIKE} when it has none.
+     */
+    public ShipQuery name(String text, Collection<Long> ids) {
+        if (text != null) {
+            name = ShipText.likePattern(text);
+            nameIds = ids;
+            set(NAME, containing(ids));
+        }
+        return this;
+    }
+
+    /**
+     * Same as {@link #name(String, Collection)} for the planet.
+     */
+    public ShipQuery planet(String text, Collection<Long> ids) {
+        if (text != null) {
+            planet = ShipText.likePattern(text);
+            planetIds = ids;
+            set(PLANET, containing(ids));
+        }
+        return this;
+    }
+
+    public ShipQuery shipType(ShipType shipType) {
+        this.shipType = shipType;
+        set(SHIP_TYPE, shipType != null ? MIN : 0);
+        return this;
+    }
+
+    /**
+     * Both bounds are inclusive.
+     */
+    public ShipQuery prodDate(Date after, Date before) {
+        this.after = after;
+        this.before = before;
+        set(PROD_DATE, bounds(after, before));
+        return this;
+    }
+
+    public ShipQuery isUsed(Boolean isUsed) {
+        this.isUsed = isUsed;
+        set(USED, isUsed != null ? MIN : 0);
+        return this;
+    }
+
+    public ShipQuery speed(Double min, Double max) {
+        minSpeed = min;
+        maxSpeed = max;
+        set(SPEED, bounds(min, max));
+        return this;
+    }
+
+    public ShipQuery crewSize(Integer min, Integer max) {
+        minCrewSize = min;
+        maxCrewSize = max;
+        set(CREW_SIZE, bounds(min, max));
+        return this;
+    }
+
+    public ShipQuery rating(Double min, Double max) {
+        minRating = min;
+        maxRating = max;
+        set(RATING, bounds(min, max));
+        return this;
+    }
+
+    public ShipQuery ids(Collection<Long> ids) {
+        this.ids = ids;
+        set(ID, IDS);
+        empty |= ids.isEmpty();
+        return this;
+    }
+
+    /**
+     * Keyset condition {@code (fieldName, id) > (sortKey, id)}; with a {@code null} sort key only the id is compared,
+     * with a {@code null} id there is none.
+     */
+    public ShipQuery after(String fieldName, Object sortKey, Long id) {
+        if (id == null) {
+            return this;
+        }
+        afterId = id;
+        if (sortKey != null) {
+            afterField = sortable(fieldName);
+            afterKey = sortKey;
+        }
+        set(AFTER, sortKey != null ? MAX : MIN);
+        return this;
+    }
+
+    /**
+     * Whether a substring condition already ruled out every ship, so there is nothing to ask the database.
+     */
+    public boolean matchesNothing() {
+        return empty;
+    }
+
+    /**
+     * Whether the name condition is the ids found by the search index rather than a {@code LIKE}.
+     */
+    public boolean isNameByIds() {
+        return get(NAME) == IDS;
+    }
+
+    /**
+     * Same as {@link #isNameByIds()} for the planet.
+     */
+    public boolean isPlanetByIds() {
+        return get(PLANET) == IDS;
+    }
+
+    /**
+     * The JPQL of this shape: {@code select} followed by the conditions and the order.
+     *
+     * @param select e.g. {@code select count(s) from Ship s}, the ship must be {@code s}
+     */
+    public String jpql(String select, Sort sort) {
+        String key = select + '|' + shape + '|' + afterField + '|' + sort;
+        String jpql = JPQL.get(key);
+        if (jpql == null) {
+            jpql = select + where() + orderBy(sort);
+            JPQL.put(key, jpql);
+        }
+        return jpql;
+    }
+
+    /**
+     * Sets the values of the parameters in {@link #jpql}.
+     */
+    public void bind(Query query) {
+        bindContaining(query, NAME, "name", name, nameIds);
+        bindContaining(query, PLANET, "planet", planet, planetIds);
+        if (shipType != null) {
+            query.setParameter("shipType", shipType);
+        }
+        bindRange(query, PROD_DATE, "after", after, "before", before);
+        if (isUsed != null) {
+            query.setParameter("isUsed", isUsed);
+        }
+        bindRange(query, SPEED, "minSpeed", minSpeed, "maxSpeed", maxSpeed);
+        bindRange(query, CREW_SIZE, "minCrewSize", minCrewSize, "maxCrewSize", maxCrewSize);
+        bindRange(query, RATING, "minRating", minRating, "maxRating", maxRating);
+        if (get(ID) != 0) {
+            query.setParameter("ids", ids);
+        }
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        if (afterKey != null) {
+            query.setParameter("afterKey", afterKey);
+        }
+    }
+
+    private String where() {
+        StringBuilder where = new StringBuilder();
+        appendContaining(where, NAME, "name");
+        appendContaining(where, PLANET, "planet");
+        if (get(SHIP_TYPE) != 0) {
+            append(where, "s.shipType = :shipType");
+        }
+        appendRange(where, PROD_DATE, "prodDate", "after", "before");
+        if (get(USED) != 0) {
+            append(where, "s.isUsed = :isUsed");
+        }
+        appendRange(where, SPEED, "speed", "minSpeed", "maxSpeed");
+        appendRange(where, CREW_SIZE, "crewSize", "minCrewSize", "maxCrewSize");
+        appendRange(where, RATING, "rating", "minRating", "maxRating");
+        if (get(ID) != 0) {
+            append(where, "s.id in :ids");
+        }
+        if (get(AFTER) == MIN) {
+            append(where, "s.id > :afterId");
+        } else if (get(AFTER) == MAX) {
+            append(where, "(s." + afterField + " > :afterKey or (s." + afterField + " = :afterKey and s.id > :afterId))");
+        }
+        return where.toString();
+    }
+
+    private static String orderBy(Sort sort) {
+        if (sort == null || sort.isUnsorted()) {
+            return "";
+        }
+        StringBuilder orderBy = new StringBuilder(" order by ");
+        String separator = "";
+        for (Sort.Order order : sort) {
+            orderBy.append(separator).append("s.").append(sortable(order.getProperty()))
+                    .append(order.isAscending() ? " asc" : " desc");
+            separator = ", ";
+        }
+        return orderBy.toString();
+    }
+
+    private static String sortable(String field) {
+        if (!SORTABLE.contains(field)) {
+            throw new IllegalArgumentException("Cannot order ships by " + field);
+        }
+        return field;
+    }
+
+    private void appendContaining(StringBuilder where, int condition, String field) {
+        if (get(condition) == LIKE) {
+            append(where, "s." + field + " like :" + field + " escape '" + ShipText.LIKE_ESCAPE + "'");
+        } else if (get(condition) == IDS) {
+            append(where, "s.id in :" + field + "Ids");
+        }
+    }
+
+    private void appendRange(StringBuilder where, int condition, String field, String min, String max) {
+        if (get(condition) == (MIN | MAX)) {
+            append(where, "s." + field + " between :" + min + " and :" + max);
+        } else if (get(condition) == MIN) {
+            append(where, "s." + field + " >= :" + min);
+        } else if (get(condition) == MAX) {
+            append(where, "s." + field + " <= :" + max);
+        }
+    }
+
+    private static void append(StringBuilder where, String condition) {
+        where.append(where.length() == 0 ? " where " : " and ").append(condition);
+    }
+
+    private void bindContaining(Query query, int condition, String field, String pattern, Collection<Long> ids) {
+        if (get(condition) == LIKE) {
+            query.setParameter(field, pattern);
+        } else if (get(condition) == IDS) {
+            query.setParameter(field + "Ids", ids);
+        }
+    }
+
+    private void bindRange(Query query, int condition, String min, Object minValue, String max, Object maxValue) {
+        if ((get(condition) & MIN) != 0) {
+            query.setParameter(min, minValue);
+        }
+        if ((get(condition) & MAX) != 0) {
+            query.setParameter(max, maxValue);
+        }
+    }
+
+    private int containing(Collection<Long> ids) {
+        if (ids == null) {
+            return LIKE;
+        }
+        empty |= ids.isEmpty();
+        return IDS;
+    }
+
+    private static int bounds(Object min, Object max) {
+        return (min != null ? MIN : 0) | (max != null ? MAX : 0);
+    }
+
+    private void set(int condition, int value) {
+        shape = shape & ~(3 << condition) | value << condition;
+    }
+
+    private int get(int condition) {
+        return shape >> condition & 3;
+    }
+}
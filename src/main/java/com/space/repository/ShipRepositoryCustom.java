@@ -0,0 +1,106 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link ShipQuery} queries whose results go through the Hibernate query cache, the export stream, and bulk writes.
+ */
+public interface ShipRepositoryCustom {
+
+    /**
+     * Page of the ships matching the query, with the JPQL of the query's shape.
+     * <p>
+     * The ships of the {@link ShipQuery} methods are read-only copies built from the selected columns, not managed
+     * entities: Hibernate keeps no snapshot of them and the read-only transaction never flushes. They carry
+     * no version.
+     */
+    Page<Ship> findPage(ShipQuery query, Pageable pageable);
+
+    /**
+     * The ships of the requested page only, for callers that already know the total.
+     */
+    List<Ship> findContent(ShipQuery query, Pageable pageable);
+
+    /**
+     * Returns at most {@code limit} ships matching the query in the given order.
+     * Unlike {@link #findPage(ShipQuery, Pageable)} it never issues a count query and never uses OFFSET.
+     */
+    List<Ship> findFirst(ShipQuery query, Sort sort, int limit);
+
+    long countMatching(ShipQuery query);
+
+    /**
+     * Forward-only stream over every matching ship, fetched from the database in chunks rather than as a list.
+     * The persistence context is cleared every {@code clearInterval} ships, so memory stays flat however many
+     * rows match. The stream must be consumed and closed inside a transaction.
+     */
+    Stream<Ship> streamAll(Specification<Ship> specification, Sort sort, int clearInterval);
+
+    /**
+     * Inserts the ships with batched JDBC statements, {@code batchSize} rows per round trip,
+     * and sets the generated ids on them. Cached query results are evicted once the transaction commits.
+     */
+    void insertAll(List<Ship> ships, int batchSize);
+
+    /**
+     * Deletes the ship through the persistence context, so only its own entry leaves the second-level cache,
+     * where a bulk delete would evict every ship. The ship is read from that cache when it is there.
+     *
+     * @return {@code false} when there is no such ship
+     */
+    boolean removeById(Long id);
+
+    /**
+     * Deletes the ships, which must exist, as {@link #removeById(Long)} does, in one batch of statements
+     * flushed at once. The persistence context is cleared afterwards.
+     */
+    void removeAll(Collection<Long> ids);
+
+    /**
+     * Passes every ship to the consumer, read row by row with plain JDBC. The ships are not managed entities,
+     * and a NULL column is a {@code null} field.
+     */
+    void scanAll(Consumer<Ship> consumer);
+
+    /**
+     * Same as {@link #scanAll(Consumer)} for the ships with the given ids that exist.
+     */
+    void scanByIds(Collection<Long> ids, Consumer<Ship> consumer);
+
+    /**
+     * Appends a row per ship to the {@code ship_change} feed in the current transaction, tagged with {@code node}.
+     * Concurrent writers each insert their own rows, none of them waits for another.
+     */
+    void appendChanges(Collection<Long> shipIds, long node);
+
+    /**
+     * Rows of the {@code ship_change} feed with an id above {@code after} or within one of {@code ranges}, in id order.
+     */
+    List<ShipChange> findChanges(long after, List<Range<Long>> ranges);
+
+    /**
+     * The highest id of the {@code ship_change} feed, 0 if it is empty.
+     */
+    long lastChange();
+
+    /**
+     * Deletes the rows of the {@code ship_change} feed appended before {@code before}.
+     */
+    int purgeChanges(Date before);
+
+    /**
+     * Flushes pending changes as batched statements and detaches every loaded ship.
+     */
+    void flushAndClear();
+}
@@ -0,0 +1,315 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+public class ShipRepositoryImpl implements ShipRepositoryCustom {
+    // a constructor expression: the ships are plain objects, never managed, snapshotted or dirty checked
+    private static final String SELECT_JPQL = "select new com.space.model.Ship(" +
+            "s.id, s.name, s.planet, s.shipType, s.prodDate, s.isUsed, s.speed, s.crewSize, s.rating) from Ship s";
+    private static final String COUNT_JPQL = "select count(s) from Ship s";
+    private static final String SCAN_SQL = "SELECT id, name, planet, shipType, prodDate, isUsed, speed, crewSize, rating FROM ship";
+    private static final int SCAN_FETCH_SIZE = 1000;
+    private static final String APPEND_CHANGE_SQL = "INSERT INTO ship_change (ship_id, node) VALUES (?, ?)";
+    private static final String FIND_CHANGES_SQL = "SELECT id, ship_id, node FROM ship_change WHERE id > ?";
+    private static final String LAST_CHANGE_SQL = "SELECT COALESCE(MAX(id), 0) FROM ship_change";
+    private static final String PURGE_CHANGES_SQL = "DELETE FROM ship_change WHERE changed_at < ?";
+    private static final int CHANGE_BATCH_SIZE = 500;
+    private static final String INSERT_SQL = "INSERT INTO ship (name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean mysql;
+
+    @Autowired
+    public ShipRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Ship> findPage(ShipQuery query, Pageable pageable) {
+        return PageableExecutionUtils.getPage(findContent(query, pageable), pageable, () -> countMatching(query));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Ship> findContent(ShipQuery query, Pageable pageable) {
+        if (query.matchesNothing()) {
+            return Collections.emptyList();
+        }
+        TypedQuery<Ship> typedQuery = selectQuery(query, pageable.getSort());
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Ship> findFirst(ShipQuery query, Sort sort, int limit) {
+        if (query.matchesNothing()) {
+            return Collections.emptyList();
+        }
+        return selectQuery(query, sort)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countMatching(ShipQuery query) {
+        if (query.matchesNothing()) {
+            return 0;
+        }
+        TypedQuery<Long> typedQuery = cacheable(entityManager.createQuery(query.jpql(COUNT_JPQL, null), Long.class));
+        query.bind(typedQuery);
+        return typedQuery.getSingleResult();
+    }
+
+    @Override
+    public Stream<Ship> streamAll(Specification<Ship> specification, Sort sort, int clearInterval) {
+        TypedQuery<Ship> query = selectQuery(specification, sort)
+                .setHint(QueryHints.CACHEABLE, false)
+                .setHint(QueryHints.READ_ONLY, true)
+                .setHint(QueryHints.FETCH_SIZE, streamingFetchSize(clearInterval));
+
+        AtomicLong loaded = new AtomicLong();
+        return query.getResultStream().peek(ship -> {
+            if (loaded.incrementAndGet() % clearInterval == 0) {
+                entityManager.clear();
+            }
+        });
+    }
+
+    @Override
+    public void insertAll(List<Ship> ships, int batchSize) {
+        // Hibernate cannot batch inserts into an identity column, plain JDBC can
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < ships.size(); from += batchSize) {
+                    List<Ship> batch = ships.subList(from, Math.min(from + batchSize, ships.size()));
+                    for (Ship ship : batch) {
+                        bind(statement, ship);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (Ship ship : batch) {
+                            keys.next();
+                            ship.setId(keys.getLong(1));
+                            ship.setVersion(0L);
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+
+        // the inserts bypassed Hibernate, so it cannot invalidate the cached query results by itself
+        SessionFactory sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    sessionFactory.getCache().evictQueryRegions();
+                }
+            });
+        } else {
+            sessionFactory.getCache().evictQueryRegions();
+        }
+    }
+
+    @Override
+    public boolean removeById(Long id) {
+        Ship ship = entityManager.find(Ship.class, id);
+        if (ship == null) {
+            return false;
+        }
+        entityManager.remove(ship);
+        return true;
+    }
+
+    @Override
+    public void removeAll(Collection<Long> ids) {
+        for (Long id : ids) {
+            entityManager.remove(entityManager.getReference(Ship.class, id));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public void scanAll(Consumer<Ship> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SCAN_SQL);
+            statement.setFetchSize(streamingFetchSize(SCAN_FETCH_SIZE));
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(scanned(resultSet)));
+    }
+
+    @Override
+    public void scanByIds(Collection<Long> ids, Consumer<Ship> consumer) {
+        List<Long> list = new ArrayList<>(ids);
+        for (int from = 0; from < list.size(); from += SCAN_FETCH_SIZE) {
+            List<Long> chunk = list.subList(from, Math.min(from + SCAN_FETCH_SIZE, list.size()));
+            String sql = SCAN_SQL + " WHERE id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            jdbcTemplate.query(sql, chunk.toArray(), (RowCallbackHandler) resultSet -> consumer.accept(scanned(resultSet)));
+        }
+    }
+
+    /**
+     * The row as a ship, with {@code null} for the columns that are NULL.
+     */
+    private static Ship scanned(ResultSet resultSet) throws SQLException {
+        String shipType = resultSet.getString(4);
+        Date prodDate = resultSet.getDate(5);
+        return new Ship(
+                resultSet.getLong(1),
+                resultSet.getString(2),
+                resultSet.getString(3),
+                shipType == null ? null : ShipType.valueOf(shipType),
+                prodDate == null ? null : new Date(prodDate.getTime()),
+                resultSet.getObject(6, Boolean.class),
+                resultSet.getObject(7, Double.class),
+                resultSet.getObject(8, Integer.class),
+                resultSet.getObject(9, Double.class));
+    }
+
+    @Override
+    public void appendChanges(Collection<Long> shipIds, long node) {
+        jdbcTemplate.batchUpdate(APPEND_CHANGE_SQL, shipIds, CHANGE_BATCH_SIZE, (statement, shipId) -> {
+            statement.setLong(1, shipId);
+            statement.setLong(2, node);
+        });
+    }
+
+    @Override
+    public List<ShipChange> findChanges(long after, List<Range<Long>> ranges) {
+        StringBuilder sql = new StringBuilder(FIND_CHANGES_SQL);
+        List<Object> parameters = new ArrayList<>(2 * ranges.size() + 1);
+        parameters.add(after);
+        for (Range<Long> range : ranges) {
+            sql.append(" OR id BETWEEN ? AND ?");
+            parameters.add(range.getLowerBound().getValue().orElseThrow(IllegalArgumentException::new));
+            parameters.add(range.getUpperBound().getValue().orElseThrow(IllegalArgumentException::new));
+        }
+        sql.append(" ORDER BY id");
+        return jdbcTemplate.query(sql.toString(), parameters.toArray(), (resultSet, rowNum) ->
+                new ShipChange(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3)));
+    }
+
+    @Override
+    public long lastChange() {
+        return jdbcTemplate.queryForObject(LAST_CHANGE_SQL, Long.class);
+    }
+
+    @Override
+    public int purgeChanges(Date before) {
+        return jdbcTemplate.update(PURGE_CHANGES_SQL, new Timestamp(before.getTime()));
+    }
+
+    @Override
+    public void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * MySQL Connector/J buffers the whole result set for any positive fetch size,
+     * it only streams row by row with {@link Integer#MIN_VALUE}.
+     */
+    private int streamingFetchSize(int fetchSize) {
+        if (mysql == null) {
+            mysql = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql"));
+        }
+        return Boolean.TRUE.equals(mysql) ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    private static void bind(PreparedStatement statement, Ship ship) throws SQLException {
+        statement.setString(1, ship.getName());
+        statement.setString(2, ship.getPlanet());
+        statement.setString(3, ship.getShipType().name());
+        statement.setTimestamp(4, new Timestamp(ship.getProdDate().getTime()));
+        statement.setBoolean(5, ship.getUsed());
+        statement.setDouble(6, ship.getSpeed());
+        statement.setInt(7, ship.getCrewSize());
+        statement.setDouble(8, ship.getRating());
+    }
+
+    private TypedQuery<Ship> selectQuery(Specification<Ship> specification, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+
+        where(query, root, specification);
+        query.select(root).orderBy(toOrders(sort, root, criteriaBuilder));
+
+        return cacheable(entityManager.createQuery(query));
+    }
+
+    private TypedQuery<Ship> selectQuery(ShipQuery query, Sort sort) {
+        TypedQuery<Ship> typedQuery = cacheable(entityManager.createQuery(query.jpql(SELECT_JPQL, sort), Ship.class));
+        query.bind(typedQuery);
+        return typedQuery;
+    }
+
+    private void where(CriteriaQuery<?> query, Root<Ship> root, Specification<Ship> specification) {
+        if (specification == null) {
+            return;
+        }
+        Predicate predicate = specification.toPredicate(root, query, entityManager.getCriteriaBuilder());
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    private static <T> TypedQuery<T> cacheable(TypedQuery<T> query) {
+        return query.setHint(QueryHints.CACHEABLE, true);
+    }
+}
@@ -0,0 +1,32 @@
+package com.space.service;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Outcome of one item of a batch request: its position in the request, the ship id and the status
+ * the single-item endpoint would have answered with.
+ */
+public class BatchResult {
+
+    private final int index;
+    private final Long id;
+    private final int status;
+
+    public BatchResult(int index, Long id, HttpStatus status) {
+        this.index = index;
+        this.id = id;
+        this.status = status.value();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,179 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic source of valid ships for load and scale testing: the same seed always gives the same fleet.
+ * <p>
+ * Transports are the most common type, planets follow a Zipf-like popularity, production years lean towards
+ * the present, older ships are more often used, and crews depend on the ship type.
+ * Ships can be loaded through {@link #loadInto(ShipService, long)} or written as CSV for the database's own
+ * bulk loader, see {@link #writeCsv(Writer, long)}.
+ */
+public class FleetGenerator {
+    public static final int CHUNK_SIZE = 10_000;
+
+    private static final String[] PLANETS = {
+            "Earth", "Mars", "Jupiter", "Saturn", "Venus", "Neptune", "Mercury", "Uranus", "Pluto",
+            "Titan", "Europa", "Ganymede", "Callisto", "Io", "Enceladus", "Triton", "Ceres", "Eris",
+            "Proxima b", "Kepler-22b", "Gliese 581g", "Trappist-1e", "Tau Ceti e", "Barnard b"
+    };
+    private static final String[] PREFIXES = {
+            "Eagle", "Falcon", "Orion", "Daedalus", "Excalibur", "Explorer", "Icarus", "Serenity", "Nostromo",
+            "Rocinante", "Galactica", "Prometheus", "Endurance", "Odyssey", "Voyager", "Pegasus", "Phoenix"
+    };
+    private static final String[] SUFFIXES = {
+            "Transporter", "Cruiser", "Hauler", "Scout", "Frigate", "Runner", "Star", "Wing", "One", "Prime"
+    };
+    private static final int FIRST_YEAR = 2800;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final SplittableRandom random;
+    private final double[] planetWeights;
+    private long created;
+
+    public FleetGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+
+        planetWeights = new double[PLANETS.length];
+        double total = 0;
+        for (int i = 0; i < PLANETS.length; i++) {
+            total += 1.0 / (i + 1);
+            planetWeights[i] = total;
+        }
+        for (int i = 0; i < PLANETS.length; i++) {
+            planetWeights[i] /= total;
+        }
+    }
+
+    public List<Ship> next(int count) {
+        List<Ship> ships = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ships.add(next());
+        }
+        return ships;
+    }
+
+    /**
+     * The next ship, rated and without an id.
+     */
+    public Ship next() {
+        created++;
+        ShipType shipType = nextShipType();
+
+        // the newest years are the most populated
+        int age = (int) Math.min(ShipRating.CURRENT_YEAR - FIRST_YEAR, Math.abs(random.nextDouble() - random.nextDouble())
+                * (ShipRating.CURRENT_YEAR - FIRST_YEAR + 1));
+        int year = ShipRating.CURRENT_YEAR - age;
+        LocalDate prodDate = LocalDate.ofYearDay(year, 1 + random.nextInt(LocalDate.of(year, 1, 1).lengthOfYear()));
+        boolean isUsed = random.nextDouble() < 0.2 + 0.6 * age / (ShipRating.CURRENT_YEAR - FIRST_YEAR);
+        double speed = Math.round(clamp(0.5 + 0.18 * nextGaussian(), 0.01, 0.99) * 100) / 100.0;
+
+        Ship ship = new Ship();
+        ship.setName(PREFIXES[random.nextInt(PREFIXES.length)] + " " + SUFFIXES[random.nextInt(SUFFIXES.length)]
+                + " " + created);
+        ship.setPlanet(PLANETS[nextPlanet()]);
+        ship.setShipType(shipType);
+        ship.setProdDate(Date.from(prodDate.atStartOfDay(ZONE).toInstant()));
+        ship.setUsed(isUsed);
+        ship.setSpeed(speed);
+        ship.setCrewSize(nextCrewSize(shipType));
+        ship.setRating(ShipRating.rating(year, speed, isUsed));
+        return ship;
+    }
+
+    /**
+     * Creates {@code count} ships through {@link ShipService#createAll(List)}, {@value #CHUNK_SIZE} per transaction.
+     */
+    public void loadInto(ShipService shipService, long count) {
+        for (long loaded = 0; loaded < count; loaded += CHUNK_SIZE) {
+            shipService.createAll(next((int) Math.min(CHUNK_SIZE, count - loaded)));
+        }
+    }
+
+    /**
+     * Writes {@code count} ships as CSV with a header line and the columns of the ship table except the id, e.g.
+     * <pre>
+     * LOAD DATA LOCAL INFILE 'ships.csv' INTO TABLE ship FIELDS TERMINATED BY ',' IGNORE 1 LINES
+     *     (name, planet, shipType, prodDate, @isUsed, speed, crewSize, rating)
+     *     SET isUsed = CAST(@isUsed AS UNSIGNED);
+     * INSERT INTO ship (name, planet, shipType, prodDate, isUsed, speed, crewSize, rating)
+     *     SELECT * FROM CSVREAD('ships.csv');
+     * </pre>
+     * for MySQL and H2. MySQL would load the text {@code 1} into the {@code BIT(1)} column as the character code,
+     * hence the cast. Loading behind the application's back leaves its caches and search index stale,
+     * restart it afterwards.
+     */
+    public void writeCsv(Writer writer, long count) throws IOException {
+        writer.write("name,planet,shipType,prodDate,isUsed,speed,crewSize,rating\n");
+        StringBuilder line = new StringBuilder();
+        for (long i = 0; i < count; i++) {
+            Ship ship = next();
+            line.setLength(0);
+            line.append(ship.getName()).append(',')
+                    .append(ship.getPlanet()).append(',')
+                    .append(ship.getShipType()).append(',')
+                    .append(ship.getProdDate().toInstant().atZone(ZONE).toLocalDate()).append(',')
+                    .append(ship.getUsed() ? 1 : 0).append(',')
+                    .append(ship.getSpeed()).append(',')
+                    .append(ship.getCrewSize()).append(',')
+                    .append(ship.getRating()).append('\n');
+            writer.append(line);
+        }
+        writer.flush();
+    }
+
+    private ShipType nextShipType() {
+        double type = random.nextDouble();
+        if (type < 0.5) {
+            return ShipType.TRANSPORT;
+        }
+        return type < 0.85 ? ShipType.MERCHANT : ShipType.MILITARY;
+    }
+
+    private int nextPlanet() {
+        double planet = random.nextDouble();
+        for (int i = 0; i < planetWeights.length - 1; i++) {
+            if (planet < planetWeights[i]) {
+                return i;
+            }
+        }
+        return planetWeights.length - 1;
+    }
+
+    private int nextCrewSize(ShipType shipType) {
+        double median;
+        switch (shipType) {
+            case MILITARY:
+                median = 1500;
+                break;
+            case MERCHANT:
+                median = 300;
+                break;
+            default:
+                median = 60;
+        }
+        return (int) clamp(Math.round(median * Math.exp(0.9 * nextGaussian())), 1, 9999);
+    }
+
+    /**
+     * Standard normal value by Box-Muller, SplittableRandom has no nextGaussian.
+     */
+    private double nextGaussian() {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
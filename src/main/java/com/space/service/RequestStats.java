@@ -0,0 +1,173 @@
+package com.space.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * What one REST request cost: SQL statements executed, rows read from their result sets, entities Hibernate loaded
+ * and bytes of JSON written. It is bound to the thread working on the request and follows the request
+ * onto {@link ShipTaskExecutor}; the future handing the result back makes the counts visible to the container thread.
+ * <p>
+ * {@link ShipQueryProfiler} binds its own stats around a query, which also keep the SQL and parameters executed.
+ * <p>
+ * Statements and rows are only counted by stats that ask for it: JDBC objects are wrapped to count them,
+ * and a connection taken while no such stats are bound is handed out as it is.
+ */
+public final class RequestStats {
+    private static final ThreadLocal<RequestStats> CURRENT = new ThreadLocal<>();
+
+    private final long start = System.nanoTime();
+    private final boolean debug;
+    private final boolean countingStatements;
+    private final List<ExecutedStatement> executed;
+    private long statements;
+    private long rows;
+    private long entities;
+    private long jsonBytes;
+
+    /**
+     * @param debug whether the client asked for the counts in a response header, which also counts the statements
+     */
+    public RequestStats(boolean debug) {
+        this(debug, debug, false);
+    }
+
+    /**
+     * @param capture whether to keep the statements executed, see {@link #getExecuted()}, which also counts them
+     */
+    public RequestStats(boolean debug, boolean capture) {
+        this(debug, debug || capture, capture);
+    }
+
+    /**
+     * @param countStatements whether to count the statements executed and the rows read
+     */
+    public RequestStats(boolean debug, boolean countStatements, boolean capture) {
+        this.debug = debug;
+        this.countingStatements = countStatements || capture;
+        this.executed = capture ? new ArrayList<>() : null;
+    }
+
+    /**
+     * The stats of the request the current thread works on, or {@code null}.
+     */
+    public static RequestStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds the stats to the current thread, {@code null} to unbind.
+     *
+     * @return the ones bound before
+     */
+    public static RequestStats bind(RequestStats stats) {
+        RequestStats previous = CURRENT.get();
+        if (stats == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(stats);
+        }
+        return previous;
+    }
+
+    public boolean isCountingStatements() {
+        return countingStatements;
+    }
+
+    public boolean isCapturing() {
+        return executed != null;
+    }
+
+    /**
+     * @param sql        kept with the parameters while capturing, may be {@code null} otherwise
+     * @param parameters the values bound to the parameters, by index from 1 at position 0
+     */
+    public void statementExecuted(String sql, List<Object> parameters) {
+        statements++;
+        if (executed != null && sql != null) {
+            executed.add(new ExecutedStatement(sql, parameters));
+        }
+    }
+
+    public void rowRead() {
+        rows++;
+    }
+
+    public void entityLoaded() {
+        entities++;
+    }
+
+    public void jsonWritten(long bytes) {
+        jsonBytes += bytes;
+    }
+
+    /**
+     * Adds the counts of stats bound around part of this request.
+     */
+    public void add(RequestStats other) {
+        statements += other.statements;
+        rows += other.rows;
+        entities += other.entities;
+        jsonBytes += other.jsonBytes;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - start;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getEntities() {
+        return entities;
+    }
+
+    public long getJsonBytes() {
+        return jsonBytes;
+    }
+
+    /**
+     * The statements executed while capturing, in order; empty if not capturing.
+     */
+    public List<ExecutedStatement> getExecuted() {
+        return executed == null ? Collections.emptyList() : Collections.unmodifiableList(executed);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "time=%.3fms; statements=%d; rows=%d; entities=%d; json=%d",
+                getElapsedNanos() / 1e6, statements, rows, entities, jsonBytes);
+    }
+
+    public static final class ExecutedStatement {
+        private final String sql;
+        private final List<Object> parameters;
+
+        private ExecutedStatement(String sql, List<Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * The values bound to the parameters, by index from 1 at position 0.
+         */
+        public List<Object> getParameters() {
+            return parameters;
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed bitmaps of ship ids for every filter of {@link ShipFilter} except name and planet:
+ * one per ship type, one for used and one for new ships, and for speed, crew size, rating and production date one per bucket
+ * of values, e.g. per year of production. A range is the union of the buckets inside it, plus the ids of
+ * the two edge buckets whose value, kept per id in a primitive array, falls inside the bounds.
+ * A filter then resolves to bitmap ANDs, and its count to the cardinality of the result, without touching the table.
+ * As in SQL, a ship with a NULL column is in none of the bitmaps of that column, so any filter on it leaves the ship out.
+ */
+@Component
+public class ShipBitmapIndex implements ShipChangeListener, InitializingBean {
+    private static final double SPEED_BUCKET = 0.05;
+    private static final double CREW_SIZE_BUCKET = 100;
+    private static final double RATING_BUCKET = 0.25;
+    private static final double PROD_DATE_BUCKET = TimeUnit.DAYS.toMillis(365) + TimeUnit.HOURS.toMillis(6);
+
+    private final ShipRepository shipRepository;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object reloading = new Object();
+    private Bitmaps bitmaps = new Bitmaps();
+    // changes committed while a reload scans the table, replayed on the new bitmaps
+    private List<Consumer<Bitmaps>> pending;
+
+    @Autowired
+    public ShipBitmapIndex(ShipRepository shipRepository,
+                           @Value("${ships.bitmap-index.enabled}") boolean enabled) {
+        this.shipRepository = shipRepository;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reload();
+    }
+
+    /**
+     * Builds new bitmaps from the table while the current ones keep answering, then swaps them in.
+     */
+    @Override
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+
+        synchronized (reloading) {
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Bitmaps reloaded = new Bitmaps();
+            boolean scanned = false;
+            try {
+                shipRepository.scanAll(reloaded::put);
+                scanned = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (scanned) {
+                        pending.forEach(change -> change.accept(reloaded));
+                        bitmaps = reloaded;
+                    }
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onSaved(Collection<Ship> ships) {
+        change(target -> ships.forEach(target::put));
+    }
+
+    @Override
+    public void onDeleted(Collection<Long> ids) {
+        change(target -> {
+            for (Long id : ids) {
+                if (id > 0 && id <= Integer.MAX_VALUE) {
+                    target.remove(id.intValue());
+                }
+            }
+        });
+    }
+
+    private void change(Consumer<Bitmaps> change) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            change.accept(bitmaps);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the ships matching every filter except name and planet, or {@code null} when the index is off.
+     * The result is a new bitmap owned by the caller.
+     */
+    public RoaringBitmap match(ShipFilter filter) {
+        if (!enabled) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            return bitmaps.match(filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Double toDouble(Number value) {
+        return value == null ? null : value.doubleValue();
+    }
+
+    /**
+     * The bitmaps of every ship, changed under the write lock.
+     */
+    private static final class Bitmaps {
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final RoaringBitmap used = new RoaringBitmap();
+        private final RoaringBitmap unused = new RoaringBitmap();
+        private final RoaringBitmap[] shipTypes = new RoaringBitmap[ShipType.values().length];
+        private final Slots slots = new Slots();
+        private final RangeBitmaps speeds = new RangeBitmaps(SPEED_BUCKET, slots);
+        private final RangeBitmaps crewSizes = new RangeBitmaps(CREW_SIZE_BUCKET, slots);
+        private final RangeBitmaps ratings = new RangeBitmaps(RATING_BUCKET, slots);
+        private final RangeBitmaps prodDates = new RangeBitmaps(PROD_DATE_BUCKET, slots);
+        private boolean usable = true;
+
+        private Bitmaps() {
+            for (int i = 0; i < shipTypes.length; i++) {
+                shipTypes[i] = new RoaringBitmap();
+            }
+        }
+
+        RoaringBitmap match(ShipFilter filter) {
+            if (!usable) {
+                return null;
+            }
+
+            RoaringBitmap result = all.clone();
+            if (filter.getShipType() != null) {
+                result.and(shipTypes[filter.getShipType().ordinal()]);
+            }
+            if (filter.getIsUsed() != null) {
+                result.and(filter.getIsUsed() ? used : unused);
+            }
+            if (filter.getMinSpeed() != null || filter.getMaxSpeed() != null) {
+                result.and(speeds.range(filter.getMinSpeed(), filter.getMaxSpeed()));
+            }
+            if (filter.getMinCrewSize() != null || filter.getMaxCrewSize() != null) {
+                result.and(crewSizes.range(toDouble(filter.getMinCrewSize()), toDouble(filter.getMaxCrewSize())));
+            }
+            if (filter.getMinRating() != null || filter.getMaxRating() != null) {
+                result.and(ratings.range(filter.getMinRating(), filter.getMaxRating()));
+            }
+            if (filter.getAfter() != null || filter.getBefore() != null) {
+                Long before = filter.getBefore();
+                if (before != null && filter.getAfter() != null) {
+                    before = ShipServiceImpl.prodDateUpperBound(before).getTime();
+                }
+                result.and(prodDates.range(toDouble(filter.getAfter()), toDouble(before)));
+            }
+            return result;
+        }
+
+        void put(Ship ship) {
+            // bitmaps hold int ids and slots need positive ones, beyond that every filter goes to the database
+            // until the next reload
+            if (ship.getId() <= 0 || ship.getId() > Integer.MAX_VALUE) {
+                usable = false;
+                return;
+            }
+
+            int id = ship.getId().intValue();
+            remove(id);
+
+            all.add(id);
+            if (ship.getUsed() != null) {
+                (ship.getUsed() ? used : unused).add(id);
+            }
+            if (ship.getShipType() != null) {
+                shipTypes[ship.getShipType().ordinal()].add(id);
+            }
+            int slot = slots.add(id);
+            speeds.put(id, slot, toDouble(ship.getSpeed()));
+            crewSizes.put(id, slot, toDouble(ship.getCrewSize()));
+            ratings.put(id, slot, ship.getRating());
+            prodDates.put(id, slot, ship.getProdDate() == null ? null : toDouble(ship.getProdDate().getTime()));
+        }
+
+        void remove(int id) {
+            if (!all.contains(id)) {
+                return;
+            }
+
+            all.remove(id);
+            used.remove(id);
+            unused.remove(id);
+            for (RoaringBitmap shipType : shipTypes) {
+                shipType.remove(id);
+            }
+            // the last slot moves into the freed one
+            int slot = slots.get(id);
+            int last = slots.size() - 1;
+            for (RangeBitmaps column : new RangeBitmaps[]{speeds, crewSizes, ratings, prodDates}) {
+                column.remove(id, slot);
+                column.move(last, slot);
+            }
+            slots.remove(id);
+        }
+    }
+
+    /**
+     * Dense slots {@code 0..size-1} for positive int ids, found through an open-addressing table with linear probing,
+     * so the values of the ids take memory in proportion to the number of ships rather than to the highest id.
+     * Removing an id moves the id of the last slot into its slot.
+     */
+    private static final class Slots {
+        private int[] keys = new int[16];
+        private int[] slotOfKey = new int[16];
+        private int[] ids = new int[8];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * The slot of the id, -1 if it has none.
+         */
+        int get(int id) {
+            int mask = keys.length - 1;
+            for (int i = hash(id) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == id) {
+                    return slotOfKey[i];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Gives the id, which must have no slot yet, the next slot.
+         */
+        int add(int id) {
+            if (2 * (size + 1) > keys.length) {
+                rehash(2 * keys.length);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            insert(id, size);
+            ids[size] = id;
+            return size++;
+        }
+
+        void remove(int id) {
+            int mask = keys.length - 1;
+            int i = hash(id) & mask;
+            while (keys[i] != id) {
+                i = (i + 1) & mask;
+            }
+            int slot = slotOfKey[i];
+            delete(i);
+
+            size--;
+            if (slot != size) {
+                int moved = ids[size];
+                ids[slot] = moved;
+                int j = hash(moved) & mask;
+                while (keys[j] != moved) {
+                    j = (j + 1) & mask;
+                }
+                slotOfKey[j] = slot;
+            }
+        }
+
+        private void insert(int id, int slot) {
+            int mask = keys.length - 1;
+            int i = hash(id) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = id;
+            slotOfKey[i] = slot;
+        }
+
+        /**
+         * Empties entry {@code i}, shifting back the entries after it that would no longer be found.
+         */
+        private void delete(int i) {
+            int mask = keys.length - 1;
+            int j = i;
+            while (true) {
+                keys[i] = 0;
+                int home;
+                do {
+                    j = (j + 1) & mask;
+                    if (keys[j] == 0) {
+                        return;
+                    }
+                    home = hash(keys[j]) & mask;
+                } while (i <= j ? i < home && home <= j : i < home || home <= j);
+                keys[i] = keys[j];
+                slotOfKey[i] = slotOfKey[j];
+                i = j;
+            }
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldSlots = slotOfKey;
+            keys = new int[capacity];
+            slotOfKey = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    insert(oldKeys[i], oldSlots[i]);
+                }
+            }
+        }
+
+        private static int hash(int id) {
+            int hash = id * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Bitmaps of one column per bucket of {@code width} values, with the value of every id kept in its slot.
+     * Dates in milliseconds and crew sizes are exact as doubles, and NaN stands for NULL, which is in no bucket.
+     */
+    private static final class RangeBitmaps {
+        private final double width;
+        private final Slots slots;
+        private final NavigableMap<Long, RoaringBitmap> buckets = new TreeMap<>();
+        private double[] values = new double[8];
+
+        private RangeBitmaps(double width, Slots slots) {
+            this.width = width;
+            this.slots = slots;
+        }
+
+        /**
+         * The id must not be indexed yet, {@code value} may be {@code null}.
+         */
+        void put(int id, int slot, Double value) {
+            if (slot >= values.length) {
+                values = Arrays.copyOf(values, 2 * values.length);
+            }
+            if (value == null) {
+                values[slot] = Double.NaN;
+                return;
+            }
+            values[slot] = value;
+            buckets.computeIfAbsent(bucket(value), bucket -> new RoaringBitmap()).add(id);
+        }
+
+        void move(int from, int to) {
+            values[to] = values[from];
+        }
+
+        void remove(int id, int slot) {
+            if (Double.isNaN(values[slot])) {
+                return;
+            }
+            long bucket = bucket(values[slot]);
+            RoaringBitmap ids = buckets.get(bucket);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                buckets.remove(bucket);
+            }
+        }
+
+        /**
+         * Ids with a value between {@code min} and {@code max} inclusive, either of them may be {@code null}.
+         */
+        RoaringBitmap range(Double min, Double max) {
+            if (buckets.isEmpty() || min != null && max != null && min > max) {
+                return new RoaringBitmap();
+            }
+            long first = min == null ? buckets.firstKey() : bucket(min);
+            long last = max == null ? buckets.lastKey() : bucket(max);
+            if (first > last) {
+                return new RoaringBitmap();
+            }
+
+            // the buckets strictly between the edges are inside the range, the edges are checked id by id
+            List<RoaringBitmap> inside = new ArrayList<>(buckets.subMap(first, false, last, false).values());
+            addWithin(inside, buckets.get(first), min, max);
+            if (last != first) {
+                addWithin(inside, buckets.get(last), min, max);
+            }
+            return FastAggregation.or(inside.iterator());
+        }
+
+        private void addWithin(List<RoaringBitmap> inside, RoaringBitmap ids, Double min, Double max) {
+            if (ids == null) {
+                return;
+            }
+            RoaringBitmap within = new RoaringBitmap();
+            ids.forEach((int id) -> {
+                double value = values[slots.get(id)];
+                if ((min == null || value >= min) && (max == null || value <= max)) {
+                    within.add(id);
+                }
+            });
+            inside.add(within);
+        }
+
+        private long bucket(double value) {
+            return (long) Math.floor(value / width);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.space.service;
+
+import com.space.model.Ship;
+
+import java.util.Collection;
+
+/**
+ * In-memory view of the ship table that {@link ShipServiceImpl} keeps up to date with its own writes,
+ * notified once they commit.
+ */
+public interface ShipChangeListener {
+
+    /**
+     * Ships created or updated, with every field set.
+     */
+    void onSaved(Collection<Ship> ships);
+
+    void onDeleted(Collection<Long> ids);
+
+    /**
+     * Rebuilds the view from the table, after it was changed around the service.
+     */
+    void reload();
+}
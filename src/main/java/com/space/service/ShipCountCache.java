@@ -0,0 +1,360 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipText;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Least recently used ship counts per filter, keyed by the normalized values of its 12 parameters.
+ * <p>
+ * A count resolved from the bitmap indexes keeps the matching ids. Writes are appended to a log of changed ships,
+ * and a cached count replays the changes it has not seen when it is next read, so it stays exact while a write
+ * costs the same however many counts are cached. A count further behind than {@value #MAX_CHANGES} changed ships is
+ * dropped. A count from the database cannot tell which ships it included and is dropped on any write; only
+ * counts read from the primary are stored, a replica may not have the latest writes yet.
+ * <p>
+ * Entries are spread over {@value #SEGMENTS} segments by key, each its own LRU of an equal share of
+ * {@code ships.count-cache.max-size} under its own lock, so reads of different filters do not wait for each other.
+ * <p>
+ * Requests, evictions and size are published as {@code cache.gets}, {@code cache.evictions} and {@code cache.size}
+ * with {@code cache=shipCounts}.
+ */
+@Component
+public class ShipCountCache implements ShipChangeListener {
+    private static final String CACHE_NAME = "shipCounts";
+    private static final int SEGMENTS = 16;
+    private static final int MAX_CHANGES = 10000;
+
+    private final int maxSize;
+    private final Segment[] segments;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    // writes take the write lock, readers replaying the log the read lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Change> changes = new ArrayList<>();
+    // the version before the first change in the log
+    private long base;
+
+    @Autowired
+    public ShipCountCache(MeterRegistry meterRegistry, @Value("${ships.count-cache.max-size}") int maxSize) {
+        this.maxSize = maxSize;
+        int count = Math.max(1, Math.min(SEGMENTS, maxSize));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((maxSize + count - 1) / count);
+        }
+
+        hits = meterRegistry.counter("cache.gets", "cache", CACHE_NAME, "result", "hit");
+        misses = meterRegistry.counter("cache.gets", "cache", CACHE_NAME, "result", "miss");
+        evictions = meterRegistry.counter("cache.evictions", "cache", CACHE_NAME);
+        meterRegistry.gauge("cache.size", Tags.of("cache", CACHE_NAME), this, ShipCountCache::size);
+    }
+
+    /**
+     * The cached count for the filter, or {@code null}.
+     */
+    public Long get(ShipFilter filter) {
+        if (maxSize <= 0) {
+            return null;
+        }
+
+        List<Object> key = key(filter);
+        Segment segment = segment(key);
+        lock.readLock().lock();
+        try {
+            synchronized (segment) {
+                Entry entry = segment.get(key);
+                if (entry != null && !catchUp(entry)) {
+                    segment.remove(key);
+                    entry = null;
+                }
+                if (entry == null) {
+                    misses.increment();
+                    return null;
+                }
+                hits.increment();
+                return entry.ids != null ? entry.ids.getLongCardinality() : entry.count;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Current write generation, to be passed back to {@link #put} with a count computed after reading it.
+     */
+    public long version() {
+        lock.readLock().lock();
+        try {
+            return currentVersion();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores the ids matching the filter as of {@code version}, from indexes that had every write up to it;
+     * this cache hears about a write after them. The writes since are replayed on the next read.
+     */
+    public void put(long version, ShipFilter filter, RoaringBitmap ids) {
+        put(new Entry(copy(filter), ids, 0, version));
+    }
+
+    /**
+     * Stores a count read from the primary, unless a write committed since {@code version}.
+     */
+    public void put(long version, ShipFilter filter, long count) {
+        put(new Entry(copy(filter), null, count, version));
+    }
+
+    @Override
+    public void onSaved(Collection<Ship> ships) {
+        append(ships.stream().map(Change::new).collect(Collectors.toList()));
+    }
+
+    @Override
+    public void onDeleted(Collection<Long> ids) {
+        append(ids.stream().map(Change::new).collect(Collectors.toList()));
+    }
+
+    @Override
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            base += changes.size() + 1;
+            changes.clear();
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    segment.clear();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private long currentVersion() {
+        return base + changes.size();
+    }
+
+    private void append(List<Change> appended) {
+        lock.writeLock().lock();
+        try {
+            changes.addAll(appended);
+            if (changes.size() > MAX_CHANGES) {
+                // counts that far behind are dropped when next read
+                int dropped = changes.size() - MAX_CHANGES / 2;
+                changes.subList(0, dropped).clear();
+                base += dropped;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Entry entry) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        List<Object> key = key(entry.filter);
+        Segment segment = segment(key);
+        lock.readLock().lock();
+        try {
+            if (entry.version < base || entry.ids == null && entry.version != currentVersion()) {
+                return;
+            }
+            synchronized (segment) {
+                segment.put(key, entry);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replays the changes the entry has not seen, under the read lock and the lock of its segment.
+     *
+     * @return {@code false} if the entry cannot be brought up to date
+     */
+    private boolean catchUp(Entry entry) {
+        long current = currentVersion();
+        if (entry.version == current) {
+            return true;
+        }
+        if (entry.ids == null || entry.version < base) {
+            return false;
+        }
+
+        for (Change change : changes.subList((int) (entry.version - base), changes.size())) {
+            long id = change.ship != null ? change.ship.getId() : change.deletedId;
+            if (id > Integer.MAX_VALUE) {
+                return false;
+            }
+            if (change.ship != null && matches(entry.filter, change.ship)) {
+                entry.ids.add((int) id);
+            } else {
+                entry.ids.remove((int) id);
+            }
+        }
+        entry.version = current;
+        return true;
+    }
+
+    private Segment segment(List<Object> key) {
+        int hash = key.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    /**
+     * The filter parameters in a fixed order, an empty name or planet matches everything like a missing one,
+     * names and planets that fold to the same text match the same ships.
+     */
+    private static List<Object> key(ShipFilter filter) {
+        return Arrays.asList(folded(filter.getName()), folded(filter.getPlanet()), filter.getShipType(),
+                filter.getAfter(), filter.getBefore(), filter.getIsUsed(),
+                filter.getMinSpeed(), filter.getMaxSpeed(),
+                filter.getMinCrewSize(), filter.getMaxCrewSize(),
+                filter.getMinRating(), filter.getMaxRating());
+    }
+
+    private static String folded(String text) {
+        return text == null || text.isEmpty() ? null : ShipText.fold(text);
+    }
+
+    private static ShipFilter copy(ShipFilter filter) {
+        ShipFilter copy = new ShipFilter();
+        copy.setName(filter.getName());
+        copy.setPlanet(filter.getPlanet());
+        copy.setShipType(filter.getShipType());
+        copy.setAfter(filter.getAfter());
+        copy.setBefore(filter.getBefore());
+        copy.setIsUsed(filter.getIsUsed());
+        copy.setMinSpeed(filter.getMinSpeed());
+        copy.setMaxSpeed(filter.getMaxSpeed());
+        copy.setMinCrewSize(filter.getMinCrewSize());
+        copy.setMaxCrewSize(filter.getMaxCrewSize());
+        copy.setMinRating(filter.getMinRating());
+        copy.setMaxRating(filter.getMaxRating());
+        return copy;
+    }
+
+    /**
+     * Same conditions as {@link ShipService#selectBy(ShipFilter)}, on a ship in memory.
+     */
+    private static boolean matches(ShipFilter filter, Ship ship) {
+        // as in SQL, a NULL column matches no filter on it
+        if (filter.getName() != null && (ship.getName() == null || !ShipText.contains(ship.getName(), ShipText.fold(filter.getName())))) {
+            return false;
+        }
+        if (filter.getPlanet() != null && (ship.getPlanet() == null || !ShipText.contains(ship.getPlanet(), ShipText.fold(filter.getPlanet())))) {
+            return false;
+        }
+        if (filter.getShipType() != null && filter.getShipType() != ship.getShipType()) {
+            return false;
+        }
+        if (filter.getIsUsed() != null && !filter.getIsUsed().equals(ship.getUsed())) {
+            return false;
+        }
+
+        Long prodDate = ship.getProdDate() == null ? null : ship.getProdDate().getTime();
+        Long before = filter.getBefore();
+        if (before != null && filter.getAfter() != null) {
+            before = ShipServiceImpl.prodDateUpperBound(before).getTime();
+        }
+        return inRange(prodDate, filter.getAfter(), before)
+                && inRange(ship.getSpeed(), filter.getMinSpeed(), filter.getMaxSpeed())
+                && inRange(ship.getCrewSize(), filter.getMinCrewSize(), filter.getMaxCrewSize())
+                && inRange(ship.getRating(), filter.getMinRating(), filter.getMaxRating());
+    }
+
+    private static <T extends Comparable<T>> boolean inRange(T value, T min, T max) {
+        if (min == null && max == null) {
+            return true;
+        }
+        return value != null && (min == null || value.compareTo(min) >= 0) && (max == null || value.compareTo(max) <= 0);
+    }
+
+    /**
+     * One saved ship, or the id of a deleted one.
+     */
+    private static final class Change {
+        private final Ship ship;
+        private final long deletedId;
+
+        private Change(Ship ship) {
+            this.ship = ship;
+            this.deletedId = 0;
+        }
+
+        private Change(Long deletedId) {
+            this.ship = null;
+            this.deletedId = deletedId;
+        }
+    }
+
+    private static final class Entry {
+        private final ShipFilter filter;
+        private final RoaringBitmap ids;
+        private final long count;
+        // the changes up to this version are in the ids
+        private long version;
+
+        private Entry(ShipFilter filter, RoaringBitmap ids, long count, long version) {
+            this.filter = filter;
+            this.ids = ids;
+            this.count = count;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Access-ordered map of one segment's entries, dropping the least recently used beyond its capacity.
+     */
+    private final class Segment extends LinkedHashMap<List<Object>, Entry> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            evictions.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.space.service;
+
+import com.space.model.ShipFilter;
+import com.space.repository.ShipQuery;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Time, statements and rows returned of the database queries behind the ship list, page and count, per query shape:
+ * the operation, the filter parameters present and the sort, e.g. {@code page planet~ rating[] order=prodDate}.
+ * A name or planet matched by the ids of the search index shows as {@code ~ids}, by a {@code LIKE} as {@code ~}.
+ * <p>
+ * The first query of a shape slower than {@code ships.profiler.explain-threshold-ms} gets the {@code EXPLAIN}
+ * of its SQL, with the same parameter values, kept with the shape, so the report shows the plans
+ * of the slow shapes and tells which indexes are missing. The plans are taken one at a time on a thread
+ * of the profiler, never by the request that was slow.
+ * <p>
+ * Off unless {@code ships.profiler.enabled}, and can be switched at runtime through {@link #setEnabled(boolean)}.
+ */
+@Component
+public class ShipQueryProfiler implements DisposableBean {
+    private static final int EXPLAIN_QUEUE = 16;
+
+    private final long explainThresholdNanos;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolExecutor explainer;
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+
+    @Autowired
+    public ShipQueryProfiler(DataSource dataSource,
+                             @Value("${ships.profiler.enabled}") boolean enabled,
+                             @Value("${ships.profiler.explain-threshold-ms}") long explainThresholdMs) {
+        this.enabled = enabled;
+        this.explainThresholdNanos = TimeUnit.MILLISECONDS.toNanos(explainThresholdMs);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ship-query-explain-");
+        threadFactory.setDaemon(true);
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(EXPLAIN_QUEUE), threadFactory);
+    }
+
+    @Override
+    public void destroy() {
+        explainer.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Runs the query and records it under its shape.
+     *
+     * @param operation what the query does, e.g. {@code count}
+     * @param filter    the filter the query was built from, {@code null} if it selects by something else
+     * @param shipQuery the query that runs, telling how the filter is matched
+     * @param sort      the order of the results, {@code null} if there is none
+     */
+    public <T> T profile(String operation, ShipFilter filter, ShipQuery shipQuery, Sort sort, Supplier<T> query) {
+        if (!enabled) {
+            return query.get();
+        }
+
+        RequestStats outer = RequestStats.current();
+        RequestStats stats = new RequestStats(false, true);
+        RequestStats.bind(stats);
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = query.get();
+        } finally {
+            RequestStats.bind(outer);
+            if (outer != null) {
+                outer.add(stats);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Shape shape = shapes.computeIfAbsent(shape(operation, filter, shipQuery, sort), Shape::new);
+        shape.record(elapsed, stats.getStatements(), stats.getRows());
+        if (elapsed >= explainThresholdNanos && shape.explaining.compareAndSet(false, true)) {
+            List<RequestStats.ExecutedStatement> executed = stats.getExecuted();
+            try {
+                explainer.execute(() -> shape.plan = explain(executed));
+            } catch (RejectedExecutionException e) {
+                // enough plans are on their way, a later slow query of the shape tries again
+                shape.explaining.set(false);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The {@code top} shapes with the highest mean time, slowest first.
+     */
+    public List<ShapeStats> report(int top) {
+        return shapes.values().stream()
+                .map(Shape::snapshot)
+                .sorted(Comparator.comparingDouble((ShapeStats stats) -> stats.meanMs).reversed())
+                .limit(top)
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        shapes.clear();
+    }
+
+    static String shape(String operation, ShipFilter filter, ShipQuery shipQuery, Sort sort) {
+        StringBuilder shape = new StringBuilder(operation);
+        if (filter != null) {
+            appendText(shape, "name", filter.getName(), shipQuery != null && shipQuery.isNameByIds());
+            appendText(shape, "planet", filter.getPlanet(), shipQuery != null && shipQuery.isPlanetByIds());
+            appendValue(shape, "shipType", filter.getShipType());
+            appendRange(shape, "prodDate", filter.getAfter(), filter.getBefore());
+            appendValue(shape, "isUsed", filter.getIsUsed());
+            appendRange(shape, "speed", filter.getMinSpeed(), filter.getMaxSpeed());
+            appendRange(shape, "crewSize", filter.getMinCrewSize(), filter.getMaxCrewSize());
+            appendRange(shape, "rating", filter.getMinRating(), filter.getMaxRating());
+        }
+        if (sort != null && sort.isSorted()) {
+            shape.append(" order=").append(sort.stream().map(Sort.Order::getProperty).collect(Collectors.joining(",")));
+        }
+        return shape.toString();
+    }
+
+    private static void appendText(StringBuilder shape, String field, String text, boolean byIds) {
+        if (text != null && !text.isEmpty()) {
+            shape.append(' ').append(field).append(byIds ? "~ids" : "~");
+        }
+    }
+
+    private static void appendValue(StringBuilder shape, String field, Object value) {
+        if (value != null) {
+            shape.append(' ').append(field);
+        }
+    }
+
+    private static void appendRange(StringBuilder shape, String field, Object min, Object max) {
+        if (min != null && max != null) {
+            shape.append(' ').append(field).append("[]");
+        } else if (min != null) {
+            shape.append(' ').append(field).append(">=");
+        } else if (max != null) {
+            shape.append(' ').append(field).append("<=");
+        }
+    }
+
+    /**
+     * Each select followed by the rows of its plan, one line per row.
+     */
+    private List<String> explain(List<RequestStats.ExecutedStatement> executed) {
+        List<String> plan = new ArrayList<>();
+        for (RequestStats.ExecutedStatement statement : executed) {
+            if (!statement.getSql().trim().toLowerCase(Locale.ROOT).startsWith("select")) {
+                continue;
+            }
+            plan.add(statement.getSql());
+            try {
+                plan.addAll(jdbcTemplate.query("EXPLAIN " + statement.getSql(), preparedStatement -> {
+                    List<Object> parameters = statement.getParameters();
+                    for (int i = 0; i < parameters.size(); i++) {
+                        preparedStatement.setObject(i + 1, parameters.get(i));
+                    }
+                }, (resultSet, rowNum) -> {
+                    ResultSetMetaData metaData = resultSet.getMetaData();
+                    if (metaData.getColumnCount() == 1) {
+                        return resultSet.getString(1);
+                    }
+                    StringBuilder row = new StringBuilder();
+                    for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                        row.append(column == 1 ? "" : ", ")
+                                .append(metaData.getColumnLabel(column)).append('=').append(resultSet.getString(column));
+                    }
+                    return row.toString();
+                }));
+            } catch (DataAccessException e) {
+                plan.add("EXPLAIN failed: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+        return plan;
+    }
+
+    private static final class Shape {
+        private final String shape;
+        private long executions;
+        private long totalNanos;
+        private long maxNanos;
+        private long statements;
+        private long rows;
+        private final AtomicBoolean explaining = new AtomicBoolean();
+        private volatile List<String> plan;
+
+        private Shape(String shape) {
+            this.shape = shape;
+        }
+
+        private synchronized void record(long nanos, long statements, long rows) {
+            executions++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            this.statements += statements;
+            this.rows += rows;
+        }
+
+        private synchronized ShapeStats snapshot() {
+            return new ShapeStats(shape, executions, totalNanos / 1e6, totalNanos / 1e6 / executions, maxNanos / 1e6,
+                    (double) statements / executions, (double) rows / executions, plan);
+        }
+    }
+
+    /**
+     * What the profiler knows about one shape, times in milliseconds.
+     */
+    public static final class ShapeStats {
+        private final String shape;
+        private final long executions;
+        private final double totalMs;
+        private final double meanMs;
+        private final double maxMs;
+        private final double meanStatements;
+        private final double meanRowsReturned;
+        private final List<String> plan;
+
+        private ShapeStats(String shape, long executions, double totalMs, double meanMs, double maxMs,
+                           double meanStatements, double meanRowsReturned, List<String> plan) {
+            this.shape = shape;
+            this.executions = executions;
+            this.totalMs = totalMs;
+            this.meanMs = meanMs;
+            this.maxMs = maxMs;
+            this.meanStatements = meanStatements;
+            this.meanRowsReturned = meanRowsReturned;
+            this.plan = plan;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+
+        public double getMeanMs() {
+            return meanMs;
+        }
+
+        public double getMaxMs() {
+            return maxMs;
+        }
+
+        /**
+         * Rows the statements of a query returned, as read from their result sets. Not the rows the database
+         * examined to find them, the plan tells those.
+         */
+        public double getMeanRowsReturned() {
+            return meanRowsReturned;
+        }
+
+        /**
+         * Each select of the first slow query with the lines of its plan, {@code null} if none was slow.
+         */
+        public List<String> getPlan() {
+            return plan;
+        }
+    }
+}
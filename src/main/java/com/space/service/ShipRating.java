@@ -0,0 +1,54 @@
+package com.space.service;
+
+import java.util.TimeZone;
+
+/**
+ * Ship rating {@code 80 * speed * k / (3019 - year + 1)}, with {@code k = 0.5} for a used ship,
+ * rounded HALF_UP to two decimals exactly like {@code BigDecimal.valueOf(rating).setScale(2, HALF_UP)},
+ * but on primitives only.
+ */
+public final class ShipRating {
+    public static final int CURRENT_YEAR = 3019;
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    private ShipRating() {
+    }
+
+    public static double rating(int prodYear, double speed, boolean isUsed) {
+        double k = isUsed ? 0.5 : 1;
+        return roundHalfUp2((80 * speed * k) / (CURRENT_YEAR - prodYear + 1));
+    }
+
+    /**
+     * Rounds to two decimals, HALF_UP on the shortest decimal form of {@code value}, as {@code BigDecimal.valueOf} does.
+     * <p>
+     * {@code (hundredths + 0.5) / 100} is the double nearest to the decimal midpoint, and any decimal that reads back
+     * as {@code value} lies on the same side of the midpoint as {@code value} itself, or on it when they are equal.
+     */
+    static double roundHalfUp2(double value) {
+        double hundredths = Math.floor(value * 100);
+        if (value >= (hundredths + 0.5) / 100) {
+            hundredths++;
+        }
+        return hundredths / 100;
+    }
+
+    /**
+     * Year of the instant in the default time zone, as {@code Calendar.getInstance()} reports it for Gregorian dates.
+     */
+    public static int yearOf(long epochMillis) {
+        long epochDay = Math.floorDiv(epochMillis + ZONE.getOffset(epochMillis), MILLIS_PER_DAY);
+
+        // days to civil date, counting in 400-year eras that start on March 1st
+        long days = epochDay + 719468;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long year = yearOfEra + era * 400;
+        return (int) (shiftedMonth < 10 ? year : year + 1);
+    }
+}
@@ -0,0 +1,506 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipText;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented copy of the ship table that answers the filtered, sorted and paged reads of
+ * {@code /rest/ships} and {@code /rest/ships/count} without SQL, when {@code ships.read-model.enabled} is set.
+ * <p>
+ * Every attribute lives in its own primitive array, indexed by row, and {@code isUsed} and {@code shipType}
+ * are kept as bitsets. A filter is evaluated one column at a time into a bit mask of matching rows,
+ * with the same semantics as {@link ShipServiceImpl#selectBy(ShipFilter)}. Rows are dense: a deleted ship
+ * is replaced by the last row.
+ * <p>
+ * The columns have no room for NULL, so while a ship has a NULL column the reads go to the database instead.
+ */
+@Component
+public class ShipReadModel implements ShipChangeListener, InitializingBean {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ShipRepository shipRepository;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rows = new HashMap<>();
+    private final Set<Long> incomplete = new HashSet<>();
+    private int size;
+    private long[] ids;
+    private String[] names;
+    private String[] planets;
+    private long[] prodDates;
+    private double[] speeds;
+    private int[] crewSizes;
+    private double[] ratings;
+    private long[] used;
+    private long[][] shipTypes;
+
+    @Autowired
+    public ShipReadModel(ShipRepository shipRepository,
+                         @Value("${ships.read-model.enabled}") boolean enabled) {
+        this.shipRepository = shipRepository;
+        this.enabled = enabled;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Whether the reads can be answered here: the model is on and no ship has a NULL column.
+     */
+    public boolean isEnabled() {
+        if (!enabled) {
+            return false;
+        }
+
+        lock.readLock().lock();
+        try {
+            return incomplete.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reload();
+    }
+
+    @Override
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            rows.clear();
+            incomplete.clear();
+            size = 0;
+            allocate(INITIAL_CAPACITY);
+            shipRepository.scanAll(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onSaved(Collection<Ship> ships) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Ship ship : ships) {
+                put(ship);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Collection<Long> ids) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Page of the ships matching the filter, sorted by the first property of the page's sort and then by id.
+     */
+    public Page<Ship> findPage(ShipFilter filter, Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            long[] mask = match(filter);
+            int matches = cardinality(mask);
+
+            if (pageable.isUnpaged()) {
+                return new PageImpl<>(toShips(firstRows(mask, matches, sortProperty(pageable.getSort()), matches), 0), pageable, matches);
+            }
+            int end = (int) Math.min(matches, pageable.getOffset() + pageable.getPageSize());
+            int[] first = firstRows(mask, matches, sortProperty(pageable.getSort()), end);
+            return new PageImpl<>(toShips(first, (int) Math.min(pageable.getOffset(), end)), pageable, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long count(ShipFilter filter) {
+        lock.readLock().lock();
+        try {
+            return cardinality(match(filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Ship ship) {
+        Integer existing = rows.get(ship.getId());
+        int row;
+        if (existing != null) {
+            row = existing;
+        } else {
+            if (size == ids.length) {
+                allocate(size + (size >> 1));
+            }
+            row = size++;
+            rows.put(ship.getId(), row);
+        }
+
+        if (ship.getName() == null || ship.getPlanet() == null || ship.getShipType() == null
+                || ship.getProdDate() == null || ship.getUsed() == null || ship.getSpeed() == null
+                || ship.getCrewSize() == null || ship.getRating() == null) {
+            incomplete.add(ship.getId());
+        } else {
+            incomplete.remove(ship.getId());
+        }
+
+        ids[row] = ship.getId();
+        names[row] = ship.getName();
+        planets[row] = ship.getPlanet();
+        prodDates[row] = ship.getProdDate() == null ? 0 : ship.getProdDate().getTime();
+        speeds[row] = ship.getSpeed() == null ? 0 : ship.getSpeed();
+        crewSizes[row] = ship.getCrewSize() == null ? 0 : ship.getCrewSize();
+        ratings[row] = ship.getRating() == null ? 0 : ship.getRating();
+        setBit(used, row, Boolean.TRUE.equals(ship.getUsed()));
+        for (ShipType shipType : ShipType.values()) {
+            setBit(shipTypes[shipType.ordinal()], row, shipType == ship.getShipType());
+        }
+    }
+
+    private void remove(long id) {
+        Integer row = rows.remove(id);
+        if (row == null) {
+            return;
+        }
+        incomplete.remove(id);
+
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            names[row] = names[last];
+            planets[row] = planets[last];
+            prodDates[row] = prodDates[last];
+            speeds[row] = speeds[last];
+            crewSizes[row] = crewSizes[last];
+            ratings[row] = ratings[last];
+            setBit(used, row, getBit(used, last));
+            for (long[] shipType : shipTypes) {
+                setBit(shipType, row, getBit(shipType, last));
+            }
+            rows.put(ids[row], row);
+        }
+
+        names[last] = null;
+        planets[last] = null;
+        setBit(used, last, false);
+        for (long[] shipType : shipTypes) {
+            setBit(shipType, last, false);
+        }
+    }
+
+    private void allocate(int capacity) {
+        int words = (capacity + 63) >>> 6;
+        if (ids == null) {
+            ids = new long[capacity];
+            names = new String[capacity];
+            planets = new String[capacity];
+            prodDates = new long[capacity];
+            speeds = new double[capacity];
+            crewSizes = new int[capacity];
+            ratings = new double[capacity];
+            used = new long[words];
+            shipTypes = new long[ShipType.values().length][words];
+            return;
+        }
+
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        planets = Arrays.copyOf(planets, capacity);
+        prodDates = Arrays.copyOf(prodDates, capacity);
+        speeds = Arrays.copyOf(speeds, capacity);
+        crewSizes = Arrays.copyOf(crewSizes, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        used = Arrays.copyOf(used, words);
+        for (int i = 0; i < shipTypes.length; i++) {
+            shipTypes[i] = Arrays.copyOf(shipTypes[i], words);
+        }
+    }
+
+    /**
+     * Bit mask of the rows matching every filter that is set.
+     */
+    private long[] match(ShipFilter filter) {
+        int words = (size + 63) >>> 6;
+        long[] mask = new long[words];
+        Arrays.fill(mask, -1L);
+        if ((size & 63) != 0) {
+            mask[words - 1] = (1L << (size & 63)) - 1;
+        }
+
+        if (filter.getShipType() != null) {
+            and(mask, shipTypes[filter.getShipType().ordinal()], false);
+        }
+        if (filter.getIsUsed() != null) {
+            and(mask, used, !filter.getIsUsed());
+        }
+        if (filter.getAfter() != null || filter.getBefore() != null) {
+            long after = filter.getAfter() == null ? Long.MIN_VALUE : filter.getAfter();
+            long before = filter.getBefore() == null ? Long.MAX_VALUE
+                    : filter.getAfter() == null ? filter.getBefore() : ShipServiceImpl.prodDateUpperBound(filter.getBefore()).getTime();
+            andRange(mask, prodDates, after, before);
+        }
+        if (filter.getMinSpeed() != null || filter.getMaxSpeed() != null) {
+            andRange(mask, speeds, filter.getMinSpeed(), filter.getMaxSpeed());
+        }
+        if (filter.getMinCrewSize() != null || filter.getMaxCrewSize() != null) {
+            andRange(mask, crewSizes,
+                    filter.getMinCrewSize() == null ? Integer.MIN_VALUE : filter.getMinCrewSize(),
+                    filter.getMaxCrewSize() == null ? Integer.MAX_VALUE : filter.getMaxCrewSize());
+        }
+        if (filter.getMinRating() != null || filter.getMaxRating() != null) {
+            andRange(mask, ratings, filter.getMinRating(), filter.getMaxRating());
+        }
+        // strings last, only the rows still matching are looked at
+        if (filter.getName() != null) {
+            andContaining(mask, names, ShipText.fold(filter.getName()));
+        }
+        if (filter.getPlanet() != null) {
+            andContaining(mask, planets, ShipText.fold(filter.getPlanet()));
+        }
+        return mask;
+    }
+
+    private static void and(long[] mask, long[] bits, boolean negate) {
+        long flip = negate ? -1L : 0L;
+        for (int w = 0; w < mask.length; w++) {
+            mask[w] &= bits[w] ^ flip;
+        }
+    }
+
+    private void andRange(long[] mask, long[] column, long min, long max) {
+        for (int w = 0; w < mask.length; w++) {
+            if (mask[w] == 0) {
+                continue;
+            }
+            int base = w << 6;
+            int end = Math.min(64, size - base);
+            long bits = 0;
+            for (int j = 0; j < end; j++) {
+                long value = column[base + j];
+                bits |= (value >= min & value <= max ? 1L : 0L) << j;
+            }
+            mask[w] &= bits;
+        }
+    }
+
+    private void andRange(long[] mask, int[] column, int min, int max) {
+        for (int w = 0; w < mask.length; w++) {
+            if (mask[w] == 0) {
+                continue;
+            }
+            int base = w << 6;
+            int end = Math.min(64, size - base);
+            long bits = 0;
+            for (int j = 0; j < end; j++) {
+                int value = column[base + j];
+                bits |= (value >= min & value <= max ? 1L : 0L) << j;
+            }
+            mask[w] &= bits;
+        }
+    }
+
+    private void andRange(long[] mask, double[] column, Double minValue, Double maxValue) {
+        double min = minValue == null ? Double.NEGATIVE_INFINITY : minValue;
+        double max = maxValue == null ? Double.POSITIVE_INFINITY : maxValue;
+        for (int w = 0; w < mask.length; w++) {
+            if (mask[w] == 0) {
+                continue;
+            }
+            int base = w << 6;
+            int end = Math.min(64, size - base);
+            long bits = 0;
+            for (int j = 0; j < end; j++) {
+                double value = column[base + j];
+                bits |= (value >= min & value <= max ? 1L : 0L) << j;
+            }
+            mask[w] &= bits;
+        }
+    }
+
+    private static void andContaining(long[] mask, String[] column, String folded) {
+        for (int w = 0; w < mask.length; w++) {
+            long bits = mask[w];
+            while (bits != 0) {
+                int j = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (!ShipText.contains(column[(w << 6) + j], folded)) {
+                    mask[w] &= ~(1L << j);
+                }
+            }
+        }
+    }
+
+    private static int cardinality(long[] mask) {
+        int cardinality = 0;
+        for (long bits : mask) {
+            cardinality += Long.bitCount(bits);
+        }
+        return cardinality;
+    }
+
+    /**
+     * The first {@code limit} of the masked rows in sort order, selected with a bounded max-heap.
+     */
+    private int[] firstRows(long[] mask, int matches, String sortProperty, int limit) {
+        int[] heap = new int[Math.min(matches, limit)];
+        if (heap.length == 0) {
+            return heap;
+        }
+
+        int heapSize = 0;
+        for (int w = 0; w < mask.length; w++) {
+            long bits = mask[w];
+            while (bits != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (heapSize < heap.length) {
+                    heap[heapSize] = row;
+                    siftUp(heap, heapSize++, sortProperty);
+                } else if (compare(row, heap[0], sortProperty) < 0) {
+                    heap[0] = row;
+                    siftDown(heap, 0, heapSize, sortProperty);
+                }
+            }
+        }
+
+        // heap sort: the largest goes to the end each time
+        for (int end = heapSize - 1; end > 0; end--) {
+            int largest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = largest;
+            siftDown(heap, 0, end, sortProperty);
+        }
+        return heap;
+    }
+
+    private void siftUp(int[] heap, int index, String sortProperty) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(heap[parent], row, sortProperty) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private void siftDown(int[] heap, int index, int heapSize, String sortProperty) {
+        int row = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && compare(heap[child + 1], heap[child], sortProperty) > 0) {
+                child++;
+            }
+            if (compare(heap[child], row, sortProperty) <= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+
+    private int compare(int a, int b, String sortProperty) {
+        int byKey;
+        switch (sortProperty) {
+            case "speed":
+                byKey = Double.compare(speeds[a], speeds[b]);
+                break;
+            case "prodDate":
+                byKey = Long.compare(prodDates[a], prodDates[b]);
+                break;
+            case "rating":
+                byKey = Double.compare(ratings[a], ratings[b]);
+                break;
+            default:
+                byKey = 0;
+        }
+        return byKey != 0 ? byKey : Long.compare(ids[a], ids[b]);
+    }
+
+    private static String sortProperty(Sort sort) {
+        for (Sort.Order order : sort) {
+            return order.getProperty();
+        }
+        return "id";
+    }
+
+    private List<Ship> toShips(int[] sortedRows, int from) {
+        List<Ship> ships = new ArrayList<>(sortedRows.length - from);
+        for (int i = from; i < sortedRows.length; i++) {
+            int row = sortedRows[i];
+            ships.add(new Ship(ids[row], names[row], planets[row], shipType(row), new Date(prodDates[row]),
+                    getBit(used, row), speeds[row], crewSizes[row], ratings[row]));
+        }
+        return ships;
+    }
+
+    private ShipType shipType(int row) {
+        for (ShipType shipType : ShipType.values()) {
+            if (getBit(shipTypes[shipType.ordinal()], row)) {
+                return shipType;
+            }
+        }
+        return null;
+    }
+
+    private static boolean getBit(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >>> 6] |= 1L << index;
+        } else {
+            bits[index >>> 6] &= ~(1L << index);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipText;
+import com.space.repository.ShipRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over ship names and planets, so that substring filters become id lookups
+ * instead of {@code LIKE '%x%'} scans.
+ * <p>
+ * Each text is indexed by the trigrams of the text padded with a boundary character, which also covers
+ * one- and two-character queries. Texts and queries are folded with {@link ShipText}, so the index matches
+ * what the {@code LIKE} matches.
+ */
+@Component
+public class ShipSearchIndex implements ShipChangeListener, InitializingBean {
+    private static final char BOUNDARY = '\u0000';
+    private static final Function<Texts, TextIndex> NAMES = texts -> texts.names;
+    private static final Function<Texts, TextIndex> PLANETS = texts -> texts.planets;
+
+    private final ShipRepository shipRepository;
+    private final boolean enabled;
+    private final int maxMatches;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object reloading = new Object();
+    private Texts texts = new Texts();
+    // changes committed while a reload scans the table, replayed on the new index
+    private List<Consumer<Texts>> pending;
+
+    @Autowired
+    public ShipSearchIndex(ShipRepository shipRepository,
+                           @Value("${ships.search-index.enabled}") boolean enabled,
+                           @Value("${ships.search-index.max-matches}") int maxMatches) {
+        this.shipRepository = shipRepository;
+        this.enabled = enabled;
+        this.maxMatches = maxMatches;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reload();
+    }
+
+    /**
+     * Builds a new index from the table while the current one keeps answering, then swaps it in.
+     */
+    @Override
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+
+        synchronized (reloading) {
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Texts reloaded = new Texts();
+            boolean scanned = false;
+            try {
+                shipRepository.scanAll(reloaded::put);
+                scanned = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (scanned) {
+                        pending.forEach(change -> change.accept(reloaded));
+                        texts = reloaded;
+                    }
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Ids of the ships whose name contains {@code text}, in ascending order, or {@code null} when the index
+     * cannot answer and the database has to be asked: the index is off, the text is empty,
+     * or more than {@code ships.search-index.max-matches} ships may match.
+     */
+    public List<Long> findByName(String text) {
+        return toIds(find(NAMES, text, maxMatches, null));
+    }
+
+    /**
+     * Same as {@link #findByName(String)} for planets.
+     */
+    public List<Long> findByPlanet(String text) {
+        return toIds(find(PLANETS, text, maxMatches, null));
+    }
+
+    /**
+     * Ids among {@code within} whose name contains {@code text}, or {@code null} if the index is off or unusable.
+     * There is no limit on the number of matches, the result is a new bitmap owned by the caller.
+     */
+    RoaringBitmap matchName(String text, RoaringBitmap within) {
+        return find(NAMES, text, Integer.MAX_VALUE, within);
+    }
+
+    /**
+     * Same as {@link #matchName(String, RoaringBitmap)} for planets.
+     */
+    RoaringBitmap matchPlanet(String text, RoaringBitmap within) {
+        return find(PLANETS, text, Integer.MAX_VALUE, within);
+    }
+
+    @Override
+    public void onSaved(Collection<Ship> ships) {
+        change(target -> ships.forEach(target::put));
+    }
+
+    @Override
+    public void onDeleted(Collection<Long> ids) {
+        change(target -> {
+            for (Long id : ids) {
+                if (id > 0 && id <= Integer.MAX_VALUE) {
+                    target.names.remove(id.intValue());
+                    target.planets.remove(id.intValue());
+                }
+            }
+        });
+    }
+
+    private void change(Consumer<Texts> change) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            change.accept(texts);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RoaringBitmap find(Function<Texts, TextIndex> index, String text, int limit, RoaringBitmap within) {
+        if (!enabled || text == null || text.isEmpty()) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (!texts.usable) {
+                return null;
+            }
+            return index.apply(texts).find(ShipText.fold(text), limit, within);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Long> toIds(RoaringBitmap matches) {
+        if (matches == null) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>(matches.getCardinality());
+        matches.forEach((int id) -> ids.add((long) id));
+        return ids;
+    }
+
+    /**
+     * The names and planets of every ship, changed under the write lock.
+     */
+    private static final class Texts {
+        private final TextIndex names = new TextIndex();
+        private final TextIndex planets = new TextIndex();
+        private boolean usable = true;
+
+        void put(Ship ship) {
+            // bitmaps hold int ids, beyond that every query goes to the database until the next reload
+            if (ship.getId() > Integer.MAX_VALUE) {
+                usable = false;
+                return;
+            }
+            names.put(ship.getId().intValue(), ship.getName());
+            planets.put(ship.getId().intValue(), ship.getPlanet());
+        }
+    }
+
+    private static final class TextIndex {
+        private final Map<String, RoaringBitmap> postings = new HashMap<>();
+        private final Map<Integer, String> texts = new HashMap<>();
+
+        void put(int id, String text) {
+            remove(id);
+            if (text == null) {
+                return;
+            }
+
+            String folded = ShipText.fold(text);
+            texts.put(id, folded);
+            String padded = BOUNDARY + folded + BOUNDARY;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                postings.computeIfAbsent(padded.substring(i, i + 3), trigram -> new RoaringBitmap()).add(id);
+            }
+        }
+
+        void remove(int id) {
+            String text = texts.remove(id);
+            if (text == null) {
+                return;
+            }
+
+            String padded = BOUNDARY + text + BOUNDARY;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                String trigram = padded.substring(i, i + 3);
+                RoaringBitmap ids = postings.get(trigram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(trigram);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Ids whose text contains the folded {@code text}, or {@code null} if there may be more than {@code limit} of them.
+         * A non-null {@code within} restricts the candidates before they are counted and verified.
+         */
+        RoaringBitmap find(String text, int limit, RoaringBitmap within) {
+            RoaringBitmap candidates;
+            if (text.length() < 3) {
+                // a short text lies inside some padded trigram of every text containing it
+                candidates = new RoaringBitmap();
+                for (Map.Entry<String, RoaringBitmap> posting : postings.entrySet()) {
+                    if (posting.getKey().contains(text)) {
+                        candidates.or(posting.getValue());
+                    }
+                }
+            } else {
+                candidates = null;
+                for (int i = 0; i + 3 <= text.length(); i++) {
+                    RoaringBitmap ids = postings.get(text.substring(i, i + 3));
+                    if (ids == null) {
+                        return new RoaringBitmap();
+                    }
+                    if (candidates == null) {
+                        candidates = ids.clone();
+                    } else {
+                        candidates.and(ids);
+                    }
+                }
+            }
+
+            if (within != null) {
+                candidates.and(within);
+            }
+            if (candidates.getCardinality() > limit) {
+                return null;
+            }
+            if (text.length() <= 3) {
+                return candidates;
+            }
+
+            // all trigrams present does not mean they are adjacent
+            RoaringBitmap matches = new RoaringBitmap();
+            candidates.forEach((int id) -> {
+                if (texts.get(id).contains(text)) {
+                    matches.add(id);
+                }
+            });
+            return matches;
+        }
+    }
+}
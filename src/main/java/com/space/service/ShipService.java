@@ -1,31 +1,94 @@
 package com.space.service;
 
 import com.space.model.Ship;
+import com.space.model.ShipFilter;
 import com.space.model.ShipType;
+import com.space.repository.ShipQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 public interface ShipService {
 
-    Page<Ship> getShipsList(Specification<Ship> specification, Pageable sortedBy);
+    /**
+     * At most {@code limit} ships matching the filter that follow the keyset position, see {@link ShipQuery#after},
+     * in the given order. Recorded by {@link ShipQueryProfiler}.
+     */
+    List<Ship> getShipsSlice(ShipFilter filter, String afterField, Comparable<?> afterKey, Long afterId,
+                             Sort sortedBy, int limit);
+
+    /**
+     * Page of the ships matching the filter, served by {@link ShipReadModel} when it is enabled,
+     * otherwise by the database.
+     */
+    Page<Ship> getShipsPage(ShipFilter filter, Pageable pageable);
 
-    Integer getShipsCount(Specification<Ship> specification);
+    /**
+     * Number of ships matching the filter, from {@link ShipReadModel} when it is enabled.
+     */
+    long countShips(ShipFilter filter);
 
     Ship getById(Long id);
 
+    /**
+     * Computes the rating of a validated ship and saves it.
+     */
     void create(Ship ship);
 
     void delete(Long id);
 
     Ship update(Long id, Ship ship);
 
-    Long checkId(String id);
+    /**
+     * Same as {@link #update(Long, Ship)}, but throws {@link com.space.exceptions.PreconditionFailedException}
+     * unless the ship is still at {@code expectedVersion}; {@code null} skips the check.
+     */
+    Ship update(Long id, Ship ship, Long expectedVersion);
+
+    /**
+     * Computes the ratings of already validated ships, inserts them in JDBC batches and sets their generated ids.
+     */
+    void createAll(List<Ship> ships);
+
+    /**
+     * Applies each partial update to the ship with the same id, one result per item in request order.
+     */
+    List<BatchResult> updateAll(List<Ship> ships);
+
+    List<BatchResult> deleteAll(List<Long> ids);
+
+    /**
+     * Passes every matching ship, ordered by id, to the consumer one at a time without collecting them in memory.
+     */
+    void exportShips(Specification<Ship> specification, Consumer<Ship> consumer);
+
+    /**
+     * Version of the ship table, the same on every node that read the same changes, see {@link ShipTableVersion}.
+     * Writes through this node show up once the in-memory views caught up with them.
+     */
+    String getTableVersion();
+
+    /**
+     * Parses a path id, throws {@link com.space.exceptions.BadRequestException} if it is not a positive number.
+     * Whether the ship exists is decided by the operation that uses the id.
+     */
+    Long parseId(String id);
 
 
     /**++++++++++++++  Select methods  +++++++++++++++++*/
 
 
+    Specification<Ship> selectBy(ShipFilter filter);
+
+    /**
+     * The conditions of {@link #selectBy(ShipFilter)} as a {@link ShipQuery}, whose JPQL is built once per shape.
+     */
+    ShipQuery queryBy(ShipFilter filter);
+
     Specification<Ship> selectByName(String name);
 
     Specification<Ship> selectByPlanet(String planet);
@@ -1,70 +1,394 @@
 package com.space.service;
 
+import com.space.config.ReplicaRoutingDataSource;
 import com.space.exceptions.BadRequestException;
 import com.space.exceptions.NotFoundException;
+import com.space.exceptions.PreconditionFailedException;
 import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipText;
 import com.space.model.ShipType;
+import com.space.repository.ShipQuery;
 import com.space.repository.ShipRepository;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ShipServiceImpl implements ShipService {
 
     final ShipRepository shipRepository;
+    private final ShipSearchIndex searchIndex;
+    private final ShipReadModel readModel;
+    private final ShipBitmapIndex bitmapIndex;
+    private final ShipCountCache countCache;
+    private final ShipQueryProfiler profiler;
+    private final int maxInList;
+    private final List<ShipChangeListener> changeListeners;
+    private final int batchSize;
+    private final ShipTableVersion tableVersion;
 
     @Override
-    public Page<Ship> getShipsList(Specification<Ship> specification, Pageable sortedBy) {
-        return shipRepository.findAll(specification, sortedBy);
+    @Transactional(readOnly = true)
+    public List<Ship> getShipsSlice(ShipFilter filter, String afterField, Comparable<?> afterKey, Long afterId,
+                                    Sort sortedBy, int limit) {
+        ShipQuery query = queryBy(filter).after(afterField, afterKey, afterId);
+        return profiler.profile("slice", filter, query, sortedBy, () -> shipRepository.findFirst(query, sortedBy, limit));
     }
 
     @Override
-    public Integer getShipsCount(Specification<Ship> specification) {
-        return shipRepository.findAll(specification).size();
+    @Transactional(readOnly = true)
+    public Page<Ship> getShipsPage(ShipFilter filter, Pageable pageable) {
+        if (readModel.isEnabled()) {
+            return readModel.findPage(filter, pageable);
+        }
+
+        RoaringBitmap ids = match(filter);
+        if (ids == null) {
+            ShipQuery query = queryBy(filter);
+            return profiler.profile("page", filter, query, pageable.getSort(), () -> shipRepository.findPage(query, pageable));
+        }
+
+        long total = ids.getLongCardinality();
+        if (total == 0 || pageable.isPaged() && pageable.getOffset() >= total) {
+            return new PageImpl<>(Collections.emptyList(), pageable, total);
+        }
+        // a short id list beats re-evaluating the filter, the total is known either way
+        List<Ship> content;
+        if (total <= maxInList) {
+            ShipQuery query = new ShipQuery().ids(toIds(ids));
+            content = profiler.profile("ids", null, query, pageable.getSort(), () -> shipRepository.findContent(query, pageable));
+        } else {
+            ShipQuery query = queryBy(filter);
+            content = profiler.profile("content", filter, query, pageable.getSort(), () -> shipRepository.findContent(query, pageable));
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countShips(ShipFilter filter) {
+        Long cached = countCache.get(filter);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = countCache.version();
+        long count;
+        RoaringBitmap ids;
+        if (readModel.isEnabled()) {
+            count = readModel.count(filter);
+            countCache.put(version, filter, count);
+        } else if ((ids = match(filter)) != null) {
+            count = ids.getLongCardinality();
+            countCache.put(version, filter, ids);
+        } else {
+            ShipQuery query = queryBy(filter);
+            count = profiler.profile("count", filter, query, null, () -> shipRepository.countMatching(query));
+            // a replica may not have the latest writes, and nothing would correct the count later
+            if (!ReplicaRoutingDataSource.isReadingReplica()) {
+                countCache.put(version, filter, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ids of the ships matching the filter from the bitmap and search indexes, {@code null} if either cannot answer.
+     */
+    private RoaringBitmap match(ShipFilter filter) {
+        RoaringBitmap ids = bitmapIndex.match(filter);
+        if (ids != null && filter.getName() != null) {
+            ids = searchIndex.matchName(filter.getName(), ids);
+        }
+        if (ids != null && filter.getPlanet() != null) {
+            ids = searchIndex.matchPlanet(filter.getPlanet(), ids);
+        }
+        return ids;
     }
 
     @Autowired
-    public ShipServiceImpl(ShipRepository shipRepository) {
+    public ShipServiceImpl(ShipRepository shipRepository,
+                           ShipSearchIndex searchIndex,
+                           ShipReadModel readModel,
+                           ShipBitmapIndex bitmapIndex,
+                           ShipCountCache countCache,
+                           ShipQueryProfiler profiler,
+                           ShipTableVersion tableVersion,
+                           List<ShipChangeListener> changeListeners,
+                           @Value("${ships.batch-size}") int batchSize,
+                           @Value("${ships.bitmap-index.max-in-list}") int maxInList) {
         this.shipRepository = shipRepository;
+        this.searchIndex = searchIndex;
+        this.readModel = readModel;
+        this.bitmapIndex = bitmapIndex;
+        this.countCache = countCache;
+        this.profiler = profiler;
+        this.tableVersion = tableVersion;
+        this.maxInList = maxInList;
+        // cached counts come from the other views, so they have to be up to date first
+        this.changeListeners = new ArrayList<>(changeListeners);
+        this.changeListeners.remove(countCache);
+        this.changeListeners.add(countCache);
+        this.batchSize = batchSize;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Ship getById(Long id) {
         return shipRepository.findById(id).orElse(null);
     }
 
     @Override
+    @Transactional
     public void create(Ship ship) {
+        ship.setRating(rating(ship));
         shipRepository.save(ship);
+        afterCommitSaved(Collections.singletonList(ship));
     }
 
     @Override
+    @Transactional
     public void delete(Long id) {
-        shipRepository.deleteById(id);
+        if (!shipRepository.removeById(id)) {
+            throw new NotFoundException();
+        }
+        afterCommitDeleted(Collections.singletonList(id));
     }
 
     @Override
+    @Transactional
     public Ship update(Long id, Ship ship) {
-        Ship newShip = getById(id);
+        return update(id, ship, null);
+    }
+
+    @Override
+    @Transactional
+    public Ship update(Long id, Ship ship, Long expectedVersion) {
+        Ship newShip = shipRepository.findById(id).orElseThrow(NotFoundException::new);
+        if (expectedVersion != null && !expectedVersion.equals(newShip.getVersion())) {
+            throw new PreconditionFailedException();
+        }
+        checkChanges(ship);
+        applyChanges(newShip, ship);
+        afterCommitSaved(Collections.singletonList(newShip));
+
+        // managed entity, flushed with a single UPDATE on commit
+        return newShip;
+    }
+
+    @Override
+    @Transactional
+    public void createAll(List<Ship> ships) {
+        for (Ship ship : ships) {
+            ship.setRating(rating(ship));
+        }
+        shipRepository.insertAll(ships, batchSize);
+        afterCommitSaved(ships);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchResult> updateAll(List<Ship> ships) {
+        List<BatchResult> results = new ArrayList<>(ships.size());
+        List<Ship> updated = new ArrayList<>();
+
+        for (int from = 0; from < ships.size(); from += batchSize) {
+            List<Ship> batch = ships.subList(from, Math.min(from + batchSize, ships.size()));
+
+            Set<Long> ids = new HashSet<>();
+            for (Ship ship : batch) {
+                if (ship.getId() != null) {
+                    ids.add(ship.getId());
+                }
+            }
+            Map<Long, Ship> existing = new HashMap<>();
+            for (Ship ship : shipRepository.findAllById(ids)) {
+                existing.put(ship.getId(), ship);
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                Ship ship = batch.get(i);
+                Ship newShip = ship.getId() == null ? null : existing.get(ship.getId());
+                if (ship.getId() == null) {
+                    results.add(new BatchResult(from + i, null, HttpStatus.BAD_REQUEST));
+                } else if (newShip == null) {
+                    results.add(new BatchResult(from + i, ship.getId(), HttpStatus.NOT_FOUND));
+                } else {
+                    try {
+                        checkChanges(ship);
+                        applyChanges(newShip, ship);
+                        updated.add(newShip);
+                        results.add(new BatchResult(from + i, ship.getId(), HttpStatus.OK));
+                    } catch (BadRequestException e) {
+                        results.add(new BatchResult(from + i, ship.getId(), HttpStatus.BAD_REQUEST));
+                    }
+                }
+            }
+
+            shipRepository.flushAndClear();
+        }
+
+        afterCommitSaved(updated);
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchResult> deleteAll(List<Long> ids) {
+        List<BatchResult> results = new ArrayList<>(ids.size());
+        List<Long> deleted = new ArrayList<>();
+
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+
+            Set<Long> existing = new HashSet<>(shipRepository.findExistingIds(batch));
+            if (!existing.isEmpty()) {
+                shipRepository.removeAll(existing);
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                Long id = batch.get(i);
+                if (id == null || id <= 0) {
+                    results.add(new BatchResult(from + i, id, HttpStatus.BAD_REQUEST));
+                } else if (existing.remove(id)) {
+                    deleted.add(id);
+                    results.add(new BatchResult(from + i, id, HttpStatus.OK));
+                } else {
+                    results.add(new BatchResult(from + i, id, HttpStatus.NOT_FOUND));
+                }
+            }
+        }
+
+        afterCommitDeleted(deleted);
+        return results;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportShips(Specification<Ship> specification, Consumer<Ship> consumer) {
+        try (Stream<Ship> ships = shipRepository.streamAll(specification, Sort.by("id"), batchSize)) {
+            ships.forEach(consumer);
+        }
+    }
+
+    @Override
+    public Long parseId(String id) {
+        long longId;
+
+        if (id == null || id.equals("") || id.equals("0")) {
+            throw new BadRequestException();
+        }
+
+        try {
+            longId = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException();
+        }
+
+        if (longId <= 0) {
+            throw new BadRequestException();
+        }
+
+        return longId;
+    }
+
+    @Override
+    public String getTableVersion() {
+        return tableVersion.get();
+    }
+
+    /**
+     * Appends the ships to the change feed with the write and, once it commits, passes them to the in-memory views.
+     */
+    private void afterCommitSaved(List<Ship> ships) {
+        if (ships.isEmpty()) {
+            return;
+        }
+        tableVersion.append(ships.stream().map(Ship::getId).collect(Collectors.toList()));
+        afterCommit(() -> {
+            changeListeners.forEach(listener -> listener.onSaved(ships));
+            tableVersion.written();
+        });
+    }
+
+    private void afterCommitDeleted(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        tableVersion.append(ids);
+        afterCommit(() -> {
+            changeListeners.forEach(listener -> listener.onDeleted(ids));
+            tableVersion.written();
+        });
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away outside a transaction.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 
+    private void checkChanges(Ship ship) {
+        if (ship.getName() != null) {
+            checkShipName(ship);
+        }
+        if (ship.getPlanet() != null) {
+            checkShipPlanet(ship);
+        }
+        if (ship.getProdDate() != null) {
+            checkShipProdDate(ship);
+        }
+        if (ship.getSpeed() != null) {
+            checkShipSpeed(ship);
+        }
+        if (ship.getCrewSize() != null) {
+            checkShipCrewSize(ship);
+        }
+    }
+
+    private void applyChanges(Ship newShip, Ship ship) {
         String name = ship.getName();
         if (name != null) {
-            checkShipName(ship);
             newShip.setName(name);
         }
 
         String planet = ship.getPlanet();
         if (planet != null) {
-            checkShipPlanet(ship);
             newShip.setPlanet(planet);
         }
 
@@ -75,7 +399,6 @@ public class ShipServiceImpl implements ShipService {
 
         Date prodDate = ship.getProdDate();
         if (prodDate != null) {
-            checkShipProdDate(ship);
             newShip.setProdDate(prodDate);
         }
 
@@ -86,41 +409,15 @@ public class ShipServiceImpl implements ShipService {
 
         Double speed = ship.getSpeed();
         if (speed != null) {
-            checkShipSpeed(ship);
             newShip.setSpeed(speed);
         }
 
         Integer crewSize = ship.getCrewSize();
         if (crewSize != null) {
-            checkShipCrewSize(ship);
             newShip.setCrewSize(crewSize);
         }
 
-        Double rating = remakeRating(newShip);
-        newShip.setRating(rating);
-
-        return shipRepository.save(newShip);
-    }
-
-    @Override
-    public Long checkId(String id) {
-        Long longId = null;
-
-        if (id == null || id.equals("") || id.equals("0")) {
-            throw new BadRequestException();
-        }
-
-        try {
-            longId = Long.parseLong(id);
-        } catch (NumberFormatException e) {
-            throw new BadRequestException();
-        }
-
-        if (!shipRepository.existsById(longId)) {
-            throw new NotFoundException();
-        }
-
-        return longId;
+        newShip.setRating(rating(newShip));
     }
 
     private void checkShipName(Ship ship) {
@@ -138,10 +435,7 @@ public class ShipServiceImpl implements ShipService {
     }
 
     private void checkShipProdDate(Ship ship) {
-        Date prodDate = ship.getProdDate();
-        Calendar calendar = new GregorianCalendar();
-        calendar.setTime(prodDate);
-        int year = calendar.get(Calendar.YEAR);
+        int year = ShipRating.yearOf(ship.getProdDate().getTime());
         if (year < 2800 || year > 3019) {
             throw new BadRequestException();
         }
@@ -161,40 +455,77 @@ public class ShipServiceImpl implements ShipService {
         }
     }
 
-    private Double remakeRating(Ship ship) {
-        double k = ship.getUsed() ? 0.5 : 1;
-        Calendar calendar = new GregorianCalendar();
-        calendar.setTime(ship.getProdDate());
-        int prodYear = calendar.get(Calendar.YEAR);
-        BigDecimal rating = BigDecimal.valueOf((80 * ship.getSpeed() * k) /
-                (3019 - prodYear + 1)).setScale(2, RoundingMode.HALF_UP);
-        return rating.doubleValue();
+    private static double rating(Ship ship) {
+        return ShipRating.rating(ShipRating.yearOf(ship.getProdDate().getTime()), ship.getSpeed(), ship.getUsed());
     }
 
     /**
      * -------------  Select methods  -------------------------
      */
 
+    @Override
+    public Specification<Ship> selectBy(ShipFilter filter) {
+        return Specification.where(selectByName(filter.getName())
+                .and(selectByPlanet(filter.getPlanet()))
+                .and(selectByShipType(filter.getShipType()))
+                .and(selectByProdDate(filter.getAfter(), filter.getBefore()))
+                .and(selectByUse(filter.getIsUsed()))
+                .and(selectBySpeed(filter.getMinSpeed(), filter.getMaxSpeed()))
+                .and(selectByCrewSize(filter.getMinCrewSize(), filter.getMaxCrewSize()))
+                .and(selectByRating(filter.getMinRating(), filter.getMaxRating())));
+    }
+
     @Override
     public Specification<Ship> selectByName(String name) {
-        return (root, query, criteriaBuilder) -> {
-            if (name == null) {
-                return null;
-            }
-            return criteriaBuilder.like(root.get("name"), "%" + name + "%");
-        };
+        return selectContaining("name", name, searchIndex.findByName(name));
     }
 
     @Override
     public Specification<Ship> selectByPlanet(String planet) {
+        return selectContaining("planet", planet, searchIndex.findByPlanet(planet));
+    }
+
+    /**
+     * Substring filter: the ids found by the search index, or a {@code LIKE} when the index has no answer,
+     * both matching as {@link ShipText} describes.
+     */
+    private static Specification<Ship> selectContaining(String fieldName, String text, List<Long> ids) {
         return (root, query, criteriaBuilder) -> {
-            if (planet == null) {
+            if (text == null) {
                 return null;
             }
-            return criteriaBuilder.like(root.get("planet"), "%" + planet + "%");
+            if (ids == null) {
+                return criteriaBuilder.like(root.get(fieldName), ShipText.likePattern(text), ShipText.LIKE_ESCAPE);
+            }
+            if (ids.isEmpty()) {
+                return criteriaBuilder.disjunction();
+            }
+            return root.get("id").in(ids);
         };
     }
 
+    private static List<Long> toIds(RoaringBitmap ids) {
+        List<Long> idList = new ArrayList<>(ids.getCardinality());
+        ids.forEach((int id) -> idList.add((long) id));
+        return idList;
+    }
+
+    @Override
+    public ShipQuery queryBy(ShipFilter filter) {
+        Long after = filter.getAfter();
+        Long before = filter.getBefore();
+        return new ShipQuery()
+                .name(filter.getName(), searchIndex.findByName(filter.getName()))
+                .planet(filter.getPlanet(), searchIndex.findByPlanet(filter.getPlanet()))
+                .shipType(filter.getShipType())
+                .prodDate(after == null ? null : new Date(after),
+                        before == null ? null : after == null ? new Date(before) : prodDateUpperBound(before))
+                .isUsed(filter.getIsUsed())
+                .speed(filter.getMinSpeed(), filter.getMaxSpeed())
+                .crewSize(filter.getMinCrewSize(), filter.getMaxCrewSize())
+                .rating(filter.getMinRating(), filter.getMaxRating());
+    }
+
     @Override
     public Specification<Ship> selectByShipType(ShipType shipType) {
         return (root, query, criteriaBuilder) -> {
@@ -222,18 +553,24 @@ public class ShipServiceImpl implements ShipService {
                 return criteriaBuilder.greaterThanOrEqualTo(root.get("prodDate"), newAfter);
             }
 
-            Calendar calendar = new GregorianCalendar();
-            calendar.setTime(new Date(before));
-            calendar.set(Calendar.HOUR, 0);
-            calendar.add(Calendar.MILLISECOND, 0);
-
             Date tempAfter = new Date(after);
-            Date tempBefore = calendar.getTime();
+            Date tempBefore = prodDateUpperBound(before);
 
             return criteriaBuilder.between(root.get("prodDate"), tempAfter, tempBefore);
         };
     }
 
+    /**
+     * Upper bound of the prodDate range when both ends are given.
+     */
+    static Date prodDateUpperBound(long before) {
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTime(new Date(before));
+        calendar.set(Calendar.HOUR, 0);
+        calendar.add(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
     @Override
     public Specification<Ship> selectByUse(Boolean isUsed) {
         return (root, query, criteriaBuilder) -> {
@@ -296,4 +633,3 @@ public class ShipServiceImpl implements ShipService {
         };
     }
 }
-
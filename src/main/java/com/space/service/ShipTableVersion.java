@@ -0,0 +1,257 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.repository.ShipChange;
+import com.space.repository.ShipRepository;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The version of the ship table as this node last saw it, read from the {@code ship_change} feed every write appends to
+ * in its transaction: the highest id of the feed, so every node arrives at the same version for the same table.
+ * <p>
+ * The feed is read after each write of this node commits, and every {@code ships.table-version.poll-ms} for the writes
+ * of other nodes and around the service. Those are applied to the in-memory views ship by ship, read again
+ * from the table, and evicted from the second-level cache of this node; the rows of this node are skipped,
+ * its views were told about them when they committed.
+ * <p>
+ * Ids are taken when a write inserts its rows, not when it commits, so a missing id below the highest one read
+ * may still arrive. Such gaps are read again on every poll for {@value #GAP_TIMEOUT_MINUTES} minute, after which
+ * the write is taken to have rolled back. A change arriving late leaves the highest id as it is, so it adds
+ * a suffix to the version of this node until the next write moves the highest id.
+ */
+@Component
+public class ShipTableVersion implements InitializingBean, DisposableBean {
+    private static final long GAP_TIMEOUT_MINUTES = 1;
+    private static final int MAX_GAPS = 100;
+    private static final long RETENTION_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final ShipRepository shipRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final List<ShipChangeListener> changeListeners;
+    private final long pollMs;
+    private final long node;
+
+    private final List<Gap> gaps = new ArrayList<>();
+    private final NavigableSet<Long> filled = new TreeSet<>();
+    private long lastChange;
+    private long lateChanges;
+    private long lastReadNanos;
+    private volatile String version;
+    private ScheduledExecutorService poller;
+
+    @Autowired
+    public ShipTableVersion(ShipRepository shipRepository,
+                            EntityManagerFactory entityManagerFactory,
+                            List<ShipChangeListener> changeListeners,
+                            ShipCountCache countCache,
+                            @Value("${ships.table-version.poll-ms}") long pollMs) {
+        this.shipRepository = shipRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        // as in ShipServiceImpl, cached counts come from the other views
+        this.changeListeners = new ArrayList<>(changeListeners);
+        this.changeListeners.remove(countCache);
+        this.changeListeners.add(countCache);
+        this.pollMs = pollMs;
+
+        long node;
+        do {
+            node = new SecureRandom().nextLong();
+        } while (node == 0);
+        // 0 is left to writes around the service
+        this.node = node;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // the views have just loaded the table themselves
+        synchronized (this) {
+            lastChange = shipRepository.lastChange();
+            lastReadNanos = System.nanoTime();
+            version = String.valueOf(lastChange);
+        }
+        if (pollMs > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ship-table-version-");
+            threadFactory.setDaemon(true);
+            poller = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            poller.scheduleWithFixedDelay(() -> {
+                try {
+                    refresh();
+                } catch (DataAccessException e) {
+                    // the database may be out of reach for a moment, the next poll tries again
+                }
+            }, pollMs, pollMs, TimeUnit.MILLISECONDS);
+            poller.scheduleWithFixedDelay(() -> {
+                try {
+                    shipRepository.purgeChanges(new Date(System.currentTimeMillis() - RETENTION_MS));
+                } catch (DataAccessException e) {
+                    // purged on the next round
+                }
+            }, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    public String get() {
+        return version;
+    }
+
+    /**
+     * Appends the ships to the feed in the current transaction, as written by this node.
+     */
+    void append(Collection<Long> shipIds) {
+        shipRepository.appendChanges(shipIds, node);
+    }
+
+    /**
+     * A write of this node committed: its rows in the feed move the version on at once.
+     */
+    void written() {
+        try {
+            refresh();
+        } catch (DataAccessException e) {
+            // the write is in, the next poll finds it
+        }
+    }
+
+    /**
+     * Reads the feed now instead of waiting for the next poll, and applies the changes of other nodes
+     * and around the service to the in-memory views.
+     */
+    public synchronized void refresh() {
+        long now = System.nanoTime();
+        if (now - lastReadNanos > TimeUnit.MILLISECONDS.toNanos(RETENTION_MS) / 2) {
+            // rows this node never read may have been purged
+            long last = shipRepository.lastChange();
+            changeListeners.forEach(ShipChangeListener::reload);
+            gaps.clear();
+            filled.clear();
+            lastReadNanos = now;
+            advance(last, 1);
+            return;
+        }
+
+        List<ShipChange> changes = shipRepository.findChanges(lastChange, gaps.stream()
+                .map(gap -> Range.of(Range.Bound.inclusive(gap.from), Range.Bound.inclusive(gap.to)))
+                .collect(Collectors.toList()));
+        lastReadNanos = now;
+
+        long next = lastChange + 1;
+        int late = 0;
+        Set<Long> foreign = new LinkedHashSet<>();
+        for (ShipChange change : changes) {
+            long id = change.getId();
+            if (id < next) {
+                if (!filled.add(id)) {
+                    continue;
+                }
+                late++;
+            } else {
+                if (id > next) {
+                    gaps.add(new Gap(next, id - 1, now));
+                }
+                next = id + 1;
+            }
+            if (change.getNode() != node) {
+                foreign.add(change.getShipId());
+            }
+        }
+        expireGaps(now);
+
+        if (!foreign.isEmpty()) {
+            apply(foreign);
+        }
+        advance(next - 1, late);
+    }
+
+    private void apply(Set<Long> shipIds) {
+        List<Ship> saved = new ArrayList<>();
+        shipRepository.scanByIds(shipIds, saved::add);
+        Set<Long> deleted = new HashSet<>(shipIds);
+        saved.forEach(ship -> deleted.remove(ship.getId()));
+
+        Cache cache = entityManagerFactory.getCache();
+        shipIds.forEach(id -> cache.evict(Ship.class, id));
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        if (!saved.isEmpty()) {
+            changeListeners.forEach(listener -> listener.onSaved(saved));
+        }
+        if (!deleted.isEmpty()) {
+            changeListeners.forEach(listener -> listener.onDeleted(deleted));
+        }
+    }
+
+    private void advance(long last, int late) {
+        if (last > lastChange) {
+            lastChange = last;
+            lateChanges = 0;
+        } else {
+            lateChanges += late;
+        }
+        version = lateChanges == 0 ? String.valueOf(lastChange) : lastChange + "." + lateChanges;
+    }
+
+    /**
+     * Drops the gaps that filled up or stayed open too long, and the oldest beyond {@value #MAX_GAPS}.
+     */
+    private void expireGaps(long now) {
+        long timeout = TimeUnit.MINUTES.toNanos(GAP_TIMEOUT_MINUTES);
+        gaps.removeIf(gap -> {
+            NavigableSet<Long> arrived = filled.subSet(gap.from, true, gap.to, true);
+            if (arrived.size() == gap.to - gap.from + 1 || now - gap.since > timeout) {
+                arrived.clear();
+                return true;
+            }
+            return false;
+        });
+        while (gaps.size() > MAX_GAPS) {
+            Gap gap = gaps.remove(0);
+            filled.subSet(gap.from, true, gap.to, true).clear();
+        }
+    }
+
+    /**
+     * Ids of the feed from {@code from} to {@code to} inclusive, not there when {@code since} a read passed them.
+     */
+    private static final class Gap {
+        private final long from;
+        private final long to;
+        private final long since;
+
+        private Gap(long from, long to, long since) {
+            this.from = from;
+            this.to = to;
+            this.since = since;
+        }
+    }
+}
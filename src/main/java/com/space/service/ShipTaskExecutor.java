@@ -0,0 +1,104 @@
+package com.space.service;
+
+import com.space.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the database work of REST requests off the servlet container threads, on one thread per pooled connection:
+ * more would only wait for a connection. Work beyond that waits in a queue of {@code ships.async.queue-capacity},
+ * and once the queue is full requests are refused with 429 instead of tying up container threads.
+ * <p>
+ * With {@code ships.async.enabled=false} the work runs on the calling thread and the returned future is already done.
+ * Queue, active threads and completed tasks are published as {@code executor.*} with {@code name=shipRequests},
+ * refused requests as {@code executor.rejected}.
+ */
+@Component
+public class ShipTaskExecutor implements DisposableBean {
+    private static final String NAME = "shipRequests";
+
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    @Autowired
+    public ShipTaskExecutor(MeterRegistry meterRegistry,
+                            @Value("${ships.async.enabled}") boolean enabled,
+                            @Value("${db.pool.maximum-size}") int threads,
+                            @Value("${ships.async.queue-capacity}") int queueCapacity) {
+        this(meterRegistry, enabled ? threads : 0, queueCapacity);
+    }
+
+    /**
+     * @param threads 0 to run the work on the calling thread
+     */
+    public ShipTaskExecutor(MeterRegistry meterRegistry, int threads, int queueCapacity) {
+        rejected = meterRegistry.counter("executor.rejected", "name", NAME);
+        if (threads <= 0) {
+            executor = null;
+            return;
+        }
+
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ship-request-");
+        threadFactory.setDaemon(true);
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, NAME, Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs the task on the pool, counting into the {@link RequestStats} of the caller.
+     * The future fails with whatever the task throws, as it is.
+     *
+     * @throws TooManyRequestsException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        RequestStats stats = RequestStats.current();
+        Runnable run = () -> {
+            RequestStats previous = RequestStats.bind(stats);
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                RequestStats.bind(previous);
+            }
+        };
+
+        if (executor == null) {
+            run.run();
+            return future;
+        }
+        try {
+            executor.execute(run);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException();
+        }
+        return future;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,3 @@
+-- Text columns of the tables created afterwards, by the migrations, compare ignoring case
+-- like MySQL's utf8_general_ci, so the LIKE filters match what ShipText matches in memory.
+SET IGNORECASE TRUE;
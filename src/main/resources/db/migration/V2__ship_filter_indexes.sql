@@ -0,0 +1,14 @@
+-- Indexes for the filters and orders ShipController generates.
+-- name and planet are only searched with LIKE '%x%', which no B-tree index can serve.
+
+-- shipType and isUsed come together from the UI, usually with a rating range or the RATING order
+CREATE INDEX idx_ship_type_used_rating ON ship (shipType, isUsed, rating);
+
+-- isUsed with a speed range or the SPEED order
+CREATE INDEX idx_ship_used_speed ON ship (isUsed, speed);
+
+-- single range filters and orders; the trailing id serves keyset pagination on (sortKey, id)
+CREATE INDEX idx_ship_speed ON ship (speed, id);
+CREATE INDEX idx_ship_prod_date ON ship (prodDate, id);
+CREATE INDEX idx_ship_rating ON ship (rating, id);
+CREATE INDEX idx_ship_crew_size ON ship (crewSize);
@@ -0,0 +1,2 @@
+-- Optimistic locking version, also the per-ship ETag of GET /rest/ships/{id}.
+ALTER TABLE ship ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
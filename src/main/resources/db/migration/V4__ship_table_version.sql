@@ -0,0 +1,12 @@
+-- Counts the changes to the ship table, shared by every node: the table ETag of GET /rest/ships and
+-- /rest/ships/count. ShipServiceImpl bumps it in the transaction of each write. Anything changing
+-- the ship table around the service has to bump it too:
+--   UPDATE ship_table_version SET version = version + 1 WHERE id = 1;
+CREATE TABLE ship_table_version
+(
+    id      INT    NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO ship_table_version (id, version) VALUES (1, 0);
@@ -0,0 +1,19 @@
+-- Replaces the single ship_table_version row, whose lock every write held until it committed.
+-- Each write appends a row per ship it created, updated or deleted in its own transaction instead,
+-- tagged with the node that ran it. The highest id is the version of the ship table, the table ETag
+-- of GET /rest/ships and /rest/ships/count, and the nodes read the rows of the others to keep their
+-- in-memory views up to date. Anything changing the ship table around the service appends rows too:
+--   INSERT INTO ship_change (ship_id, node) VALUES (<ship id>, 0);
+-- Rows older than an hour are purged.
+CREATE TABLE ship_change
+(
+    id         BIGINT    NOT NULL AUTO_INCREMENT,
+    ship_id    BIGINT    NOT NULL,
+    node       BIGINT    NOT NULL,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_ship_change_changed_at ON ship_change (changed_at);
+
+DROP TABLE ship_table_version;
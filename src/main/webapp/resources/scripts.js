@@ -1,125 +1,169 @@
-function loadContent(root, suffix, currentPage) {
+// Filter inputs wait this long after the last keystroke before searching
+const FILTER_DELAY_MS = 300;
+
+// The page request in flight, aborted when a newer one replaces it
+let pageRequest = null;
+// Query of the page on screen, a search for the same one is skipped
+let shownSuffix = null;
+
+document.addEventListener("DOMContentLoaded", function () {
+    let root = document.getElementById("root").getAttribute("about");
+    let search = debounce(function () {
+        processSearch(root, 1);
+    }, FILTER_DELAY_MS);
+
+    let filters = ["inputName", "inputPlanet", "inputProdYearAfter", "inputProdYearBefore", "inputCrewSizeMin",
+        "inputCrewSizeMax", "inputSpeedMin", "inputSpeedMax", "inputRatingMin", "inputRatingMax"];
+    for (let i = 0; i < filters.length; i++) {
+        document.getElementById(filters[i]).addEventListener("input", search);
+    }
+    document.getElementById("inputShipType").addEventListener("change", search);
+    for (let i = 1; i <= 3; i++) {
+        document.getElementById("inlineRadio" + i).addEventListener("change", search);
+    }
 
-    let objects = JSON.parse(Get(root + "/rest/ships" + suffix).responseText);
-    let shipsCount = Get(root + "/rest/ships/count" + suffix).responseText;
-    document.getElementById("count").innerText = "Ships found: " + shipsCount;
-    let table = document.getElementById("mainTable");
-    table.innerHTML = "";
-    createPaging(document.getElementById("limit").value, shipsCount, currentPage);
-
-    for (let i = 0; i < objects.length; i++) {
-
-        let tr = document.createElement("tr");
-        let th = document.createElement("th");
-        th.setAttribute("scope", "row");
-        th.appendChild(document.createTextNode(objects[i].id));
-        tr.appendChild(th);
-        let td1 = document.createElement("td");
-        td1.appendChild(document.createTextNode(objects[i].name));
-        tr.appendChild(td1);
-        let td2 = document.createElement("td");
-        td2.appendChild(document.createTextNode(objects[i].planet));
-        tr.appendChild(td2);
-        let td3 = document.createElement("td");
-        let shipType = objects[i].shipType.charAt(0).toUpperCase() + objects[i].shipType.slice(1).toLowerCase();
-        td3.appendChild(document.createTextNode(shipType));
-        tr.appendChild(td3);
-        let td4 = document.createElement("td");
-        let date = new Date();
-        date.setTime(objects[i].prodDate);
-        td4.appendChild(document.createTextNode(date.getFullYear().toString()));
-        tr.appendChild(td4);
-        let preOwned;
-        if (objects[i].isUsed) {
-            preOwned = "pre-owned";
+    // one listener for the buttons of every row instead of two per row
+    document.getElementById("mainTable").addEventListener("click", function (event) {
+        let button = event.target.closest("button[data-action]");
+        if (button === null) {
+            return;
+        }
+        let id = +button.getAttribute("data-id");
+        if (button.getAttribute("data-action") === "edit") {
+            editButtonClick(root, button.closest("tr"), id);
         } else {
-            preOwned = "new";
+            processDelete(root, id);
         }
-        let td5 = document.createElement("td");
-        td5.appendChild(document.createTextNode(preOwned));
-        tr.appendChild(td5);
-        let td6 = document.createElement("td");
-        td6.appendChild(document.createTextNode(objects[i].speed));
-        tr.appendChild(td6);
-        let td7 = document.createElement("td");
-        td7.appendChild(document.createTextNode(objects[i].crewSize));
-        tr.appendChild(td7);
-        let td8 = document.createElement("td");
-        td8.appendChild(document.createTextNode(objects[i].rating));
-        tr.appendChild(td8);
-        let warButton = document.createElement("button");
-        warButton.setAttribute("type", "button");
-        warButton.setAttribute("class", "btn btn-warning btn-sm");
-        warButton.appendChild(document.createTextNode("Edit"));
-        warButton.addEventListener("click", function () {
-            editButtonClick(root, tr, objects[i].id)
-        });
-        let dangerButton = document.createElement("button");
-        dangerButton.setAttribute("type", "button");
-        dangerButton.setAttribute("class", "btn btn-danger btn-sm");
-        dangerButton.appendChild(document.createTextNode("Delete"));
-        dangerButton.addEventListener("click", function () {
-            processDelete(root, objects[i].id)
-        });
-        let td9 = document.createElement("td");
-        td9.appendChild(warButton);
-        tr.appendChild(td9);
-        let td10 = document.createElement("td");
-        td10.appendChild(dangerButton);
-        tr.appendChild(td10);
-        table.appendChild(tr);
-    }
-    window.scrollTo(500, 100);
+    });
+});
+
+function debounce(action, delay) {
+    let timer = null;
+    return function () {
+        clearTimeout(timer);
+        timer = setTimeout(action, delay);
+    };
 }
 
-function Get(requestUrl) {
-    let Httpreq = new XMLHttpRequest(); // a new request
-    Httpreq.open("GET", requestUrl, false);
-    Httpreq.send(null);
-    if (Httpreq.status === 400) {
-        $('#error-text').text("Bad request to GET " + requestUrl);
-        $('#myModal').modal('show');
+/**
+ * Loads a page of ships and their count with one request and redraws the table.
+ * A newer call aborts the previous one, so quickly changing filters never draw an outdated page.
+ */
+async function loadContent(root, suffix, currentPage, force) {
+    if (!force && suffix === shownSuffix) {
+        return;
     }
-    if (Httpreq.status === 404) {
-        $('#error-text').text("Not found GET " + requestUrl);
-        $('#myModal').modal('show');
+    if (pageRequest !== null) {
+        pageRequest.abort();
     }
-    return Httpreq;
-}
+    let controller = new AbortController();
+    pageRequest = controller;
+
+    let page;
+    try {
+        page = await getJson(root + "/rest/ships/page" + suffix, controller.signal);
+    } catch (e) {
+        if (e.name !== "AbortError") {
+            console.error(e);
+        }
+        return;
+    } finally {
+        if (pageRequest === controller) {
+            pageRequest = null;
+        }
+    }
+    if (page === null) {
+        return;
+    }
+    shownSuffix = suffix;
+
+    document.getElementById("count").innerText = "Ships found: " + page.count;
+    createPaging(document.getElementById("limit").value, page.count, currentPage);
 
-function post(requestUrl, body) {
-    let Httpreq = new XMLHttpRequest(); // a new request
-    Httpreq.open("POST", requestUrl, false);
-    Httpreq.setRequestHeader("Content-type", "application/json;charset=UTF-8");
-    Httpreq.send(body);
-    if (Httpreq.status === 400) {
-        $('#error-text').text("Bad request to POST " + requestUrl);
-        $('#myModal').modal('show');
+    // build the rows off-document and attach them at once, a single layout for the whole table
+    let rows = document.createDocumentFragment();
+    for (let i = 0; i < page.ships.length; i++) {
+        rows.appendChild(createRow(page.ships[i]));
     }
-    if (Httpreq.status === 404) {
-        $('#error-text').text("Not found POST " + requestUrl);
-        $('#myModal').modal('show');
+    let table = document.getElementById("mainTable");
+    table.textContent = "";
+    table.appendChild(rows);
+    window.scrollTo(500, 100);
+}
+
+function createRow(ship) {
+    let tr = document.createElement("tr");
+    let th = document.createElement("th");
+    th.setAttribute("scope", "row");
+    th.textContent = ship.id;
+    tr.appendChild(th);
+
+    let shipType = ship.shipType.charAt(0).toUpperCase() + ship.shipType.slice(1).toLowerCase();
+    let date = new Date();
+    date.setTime(ship.prodDate);
+    let cells = [ship.name, ship.planet, shipType, date.getFullYear().toString(), ship.isUsed ? "pre-owned" : "new",
+        ship.speed, ship.crewSize, ship.rating];
+    for (let i = 0; i < cells.length; i++) {
+        let td = document.createElement("td");
+        td.textContent = cells[i];
+        tr.appendChild(td);
     }
-    return Httpreq;
+
+    tr.appendChild(createButtonCell("edit", ship.id, "btn btn-warning btn-sm", "Edit"));
+    tr.appendChild(createButtonCell("delete", ship.id, "btn btn-danger btn-sm", "Delete"));
+    return tr;
+}
+
+function createButtonCell(action, id, buttonClass, text) {
+    let button = document.createElement("button");
+    button.setAttribute("type", "button");
+    button.setAttribute("class", buttonClass);
+    button.setAttribute("data-action", action);
+    button.setAttribute("data-id", id);
+    button.textContent = text;
+    let td = document.createElement("td");
+    td.appendChild(button);
+    return td;
+}
+
+/**
+ * Parsed JSON body of a GET, or {@code null} after showing the error.
+ * {@code no-cache} revalidates with the server, which answers 304 while nothing changed.
+ */
+async function getJson(requestUrl, signal) {
+    let response = await send("GET", requestUrl, null, signal);
+    return response.ok ? response.json() : null;
 }
 
-function Delete(requestUrl) {
-    let Httpreq = new XMLHttpRequest(); // a new request
-    Httpreq.open("DELETE", requestUrl, false);
-    Httpreq.send(null);
-    console.log(Httpreq.status);
-    if (Httpreq.status === 400) {
-        $('#error-text').text("Bad request to DELETE " + requestUrl);
-        $('#myModal').modal('show');
+async function send(method, requestUrl, body, signal) {
+    let init = {method: method, cache: "no-cache", signal: signal};
+    if (body !== null) {
+        init.headers = {"Content-type": "application/json;charset=UTF-8"};
+        init.body = body;
     }
-    if (Httpreq.status === 404) {
-        $('#error-text').text("Not found DELETE " + requestUrl);
-        $('#myModal').modal('show');
+    let response = await fetch(requestUrl, init);
+    if (response.status === 400) {
+        showError("Bad request to " + method + " " + requestUrl);
+    } else if (response.status === 404) {
+        showError("Not found " + method + " " + requestUrl);
+    } else if (response.status === 429 || response.status === 503) {
+        showError("The server is busy, try " + method + " " + requestUrl + " again later");
+    } else if (!response.ok) {
+        showError("Request " + method + " " + requestUrl + " failed with status " + response.status);
     }
-    return Httpreq;
+    return response;
 }
 
-function processSearch(root, currentPage) {
+function showError(text) {
+    $('#error-text').text(text);
+    $('#myModal').modal('show');
+}
+
+function processSearch(root, currentPage, force) {
+    loadContent(root, searchSuffix(currentPage), currentPage, force);
+}
+
+function searchSuffix(currentPage) {
     let name = document.getElementById("inputName").value;
     let planet = document.getElementById("inputPlanet").value;
     let dateAfter = new Date();
@@ -151,10 +195,10 @@ function processSearch(root, currentPage) {
     }
     let sufix = "?";
     if (name !== "") {
-        sufix += "name=" + name;
+        sufix += "name=" + encodeURIComponent(name);
     }
     if (planet !== "") {
-        sufix += "&planet=" + planet;
+        sufix += "&planet=" + encodeURIComponent(planet);
     }
     if (shipType !== "Any") {
         sufix += "&shipType=" + shipType.toUpperCase();
@@ -190,18 +234,16 @@ function processSearch(root, currentPage) {
     sufix += "&pageNumber=" + (+currentPage - 1);
     sufix += "&pageSize=" + +limit;
 
-    console.log(limit);
-
     if (order === "Prod year") {
         order = "date";
     }
     sufix += "&order=" + order.toUpperCase();
-    loadContent(root, sufix, currentPage);
+    return sufix;
 }
 
 function createPaging(shipsInPage, shipsSummary, currentPage) {
-    let paggingBar = document.getElementById("pagging-bar");
-    paggingBar.innerHTML = "";
+    let root = document.getElementById("root").getAttribute("about");
+    let pages = document.createDocumentFragment();
     let pagesCount = shipsSummary / shipsInPage;
     if (pagesCount > 1) {
 
@@ -215,21 +257,30 @@ function createPaging(shipsInPage, shipsSummary, currentPage) {
             let a = document.createElement("a");
             a.setAttribute("class", "page-link");
             a.setAttribute("href", "#");
-            let root = document.getElementById("root").getAttribute("about");
-            a.setAttribute("onclick", "processSearch('" + root + "', " + (i + 1) + ")");
-            a.appendChild(document.createTextNode(i + 1));
+            a.addEventListener("click", function (event) {
+                event.preventDefault();
+                processSearch(root, i + 1);
+            });
+            a.textContent = i + 1;
             li.appendChild(a);
-            paggingBar.appendChild(li);
+            pages.appendChild(li);
         }
     }
+    let paggingBar = document.getElementById("pagging-bar");
+    paggingBar.textContent = "";
+    paggingBar.appendChild(pages);
 }
 
-function editButtonClick(root, element, id) {
-    let objectToUpdate = JSON.parse(Get(root + "/rest/ships/" + id).responseText);
+async function editButtonClick(root, element, id) {
+    // closing the form needs no request
     if (document.body.contains(document.getElementById("update" + id))) {
         document.getElementById("update" + id).remove();
         return;
     }
+    let objectToUpdate = await getJson(root + "/rest/ships/" + id);
+    if (objectToUpdate === null || document.body.contains(document.getElementById("update" + id))) {
+        return;
+    }
     let tr = document.createElement("tr");
     tr.setAttribute("id", "update" + objectToUpdate.id);
 
@@ -364,7 +415,7 @@ function editButtonClick(root, element, id) {
     element.insertAdjacentElement("afterEnd", tr);
 }
 
-function sendUpdate(root, id) {
+async function sendUpdate(root, id) {
     let body = {};
     body.name = document.getElementById("updateName" + id).value;
     body.planet = document.getElementById("updatePlanet" + id).value;
@@ -377,8 +428,8 @@ function sendUpdate(root, id) {
     body.speed = document.getElementById("updateSpeed" + id).value;
     body.crewSize = document.getElementById("updateCrewSize" + id).value;
 
-    post(root + "/rest/ships/" + id, JSON.stringify(body));
-    loadContent(root, "", 1);
+    await send("POST", root + "/rest/ships/" + id, JSON.stringify(body), undefined);
+    loadContent(root, "", 1, true);
 }
 
 function clickCreate() {
@@ -390,7 +441,7 @@ function clickCreate() {
     }
 }
 
-function processCreate(root) {
+async function processCreate(root) {
     let body = {};
     body.name = document.getElementById("inputNameNew").value;
     body.planet = document.getElementById("inputPlanetNew").value;
@@ -406,7 +457,7 @@ function processCreate(root) {
     body.speed = document.getElementById("inputSpeedNew").value;
     body.crewSize = document.getElementById("inputCrewSizeNew").value;
 
-    let response = post(root + "/rest/ships/", JSON.stringify(body));
+    let response = await send("POST", root + "/rest/ships/", JSON.stringify(body), undefined);
     if (response.status === 200) {
         document.getElementById("inputNameNew").value = "";
         document.getElementById("inputPlanetNew").value = "";
@@ -421,14 +472,10 @@ function processCreate(root) {
 
     }
 
-    processSearch(root, 1);
+    processSearch(root, 1, true);
 }
 
-function processDelete(root, id) {
-    Delete(root + "/rest/ships/" + id);
-    processSearch(root, 1);
+async function processDelete(root, id) {
+    await send("DELETE", root + "/rest/ships/" + id, null, undefined);
+    processSearch(root, 1, true);
 }
-
-    
-        
-     
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.service.ShipService;
+import com.space.service.ShipTaskExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class AsyncRequestTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void requestsRunAsynchronouslyOnExecutor() throws Exception {
+        MockMvc asyncMvc = asyncMvc(new ShipTaskExecutor(new SimpleMeterRegistry(), 2, 10));
+
+        MvcResult count = asyncMvc.perform(get("/rest/ships/count?shipType=MILITARY"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = asyncMvc.perform(asyncDispatch(count))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Возвращается не правильный результат при асинхронном запросе GET /rest/ships/count.",
+                mockMvc.perform(get("/rest/ships/count?shipType=MILITARY")).andReturn().getResponse().getContentAsString(), body);
+
+        MvcResult missing = asyncMvc.perform(get("/rest/ships/1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        asyncMvc.perform(asyncDispatch(missing)).andExpect(status().isNotFound());
+    }
+
+    //test2
+    @Test
+    public void fullQueueIsRejectedWithTooManyRequests() throws Exception {
+        ShipTaskExecutor executor = new ShipTaskExecutor(new SimpleMeterRegistry(), 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.submit(() -> await(release));
+            executor.submit(() -> await(release));
+
+            asyncMvc(executor).perform(get("/rest/ships/count"))
+                    .andExpect(status().isTooManyRequests());
+        } finally {
+            release.countDown();
+            executor.destroy();
+        }
+    }
+
+    //test3
+    @Test
+    public void synchronousModeAnswersWithoutAsyncDispatch() throws Exception {
+        mockMvc.perform(get("/rest/ships/count"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships/5"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk());
+    }
+
+    private MockMvc asyncMvc(ShipTaskExecutor executor) {
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        ShipController controller = new ShipController(context.getBean(ShipService.class), objectMapper, executor);
+        return MockMvcBuilders.standaloneSetup(controller)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
+    private static Object await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
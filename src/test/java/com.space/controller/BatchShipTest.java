@@ -0,0 +1,104 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BatchShipTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void createShipsReportsEveryItem() throws Exception {
+        String body = "[" + TestsHelper.NORMAL_JSON + "," + TestsHelper.EMPTY_NAME_JSON + "," + TestsHelper.NO_IS_USED_JSON + "]";
+
+        JsonNode results = perform(post("/rest/ships/batch"), body);
+
+        assertEquals("Не правильное количество результатов POST /rest/ships/batch.", 3, results.size());
+        assertEquals("Не правильный статус первого корабля POST /rest/ships/batch.", 200, results.get(0).get("status").asInt());
+        assertEquals("Не правильный статус невалидного корабля POST /rest/ships/batch.", 400, results.get(1).get("status").asInt());
+        assertEquals("Не правильный статус третьего корабля POST /rest/ships/batch.", 200, results.get(2).get("status").asInt());
+
+        ShipInfoTest created = getShip(results.get(2).get("id").asLong());
+        assertEquals("Не правильно рассчитан рейтинг корабля POST /rest/ships/batch.", 12.8, created.rating);
+        assertEquals("Не правильное количество кораблей после POST /rest/ships/batch.",
+                testsHelper.getAllShips().size() + 2L, count());
+    }
+
+    //test2
+    @Test
+    public void updateShipsReportsEveryItem() throws Exception {
+        String body = "[" +
+                "{\"id\": 1, \"name\": \"Renamed\", \"speed\": 0.5}," +
+                "{\"id\": 2, \"crewSize\": 100000}," +
+                "{\"id\": 415, \"name\": \"Ghost\"}," +
+                "{\"name\": \"No id\"}" +
+                "]";
+
+        JsonNode results = perform(post("/rest/ships/batch/update"), body);
+
+        assertEquals("Не правильный статус обновления POST /rest/ships/batch/update.", 200, results.get(0).get("status").asInt());
+        assertEquals("Не правильный статус невалидного обновления POST /rest/ships/batch/update.", 400, results.get(1).get("status").asInt());
+        assertEquals("Не правильный статус несуществующего корабля POST /rest/ships/batch/update.", 404, results.get(2).get("status").asInt());
+        assertEquals("Не правильный статус корабля без id POST /rest/ships/batch/update.", 400, results.get(3).get("status").asInt());
+
+        ShipInfoTest updated = getShip(1);
+        ShipInfoTest expected = testsHelper.getShipInfosById(1);
+        assertEquals("Корабль не обновлен POST /rest/ships/batch/update.", "Renamed", updated.name);
+        assertEquals("Не правильная скорость после POST /rest/ships/batch/update.", 0.5, updated.speed);
+        assertNotEquals("Рейтинг не пересчитан после POST /rest/ships/batch/update.", expected.rating, updated.rating);
+        assertEquals("Невалидное обновление изменило корабль POST /rest/ships/batch/update.",
+                testsHelper.getShipInfosById(2), getShip(2));
+    }
+
+    //test3
+    @Test
+    public void deleteShipsReportsEveryItem() throws Exception {
+        JsonNode results = perform(post("/rest/ships/batch/delete"), "[1, 415, 2, 0]");
+
+        assertEquals("Не правильный статус удаления POST /rest/ships/batch/delete.", 200, results.get(0).get("status").asInt());
+        assertEquals("Не правильный статус несуществующего корабля POST /rest/ships/batch/delete.", 404, results.get(1).get("status").asInt());
+        assertEquals("Не правильный статус удаления POST /rest/ships/batch/delete.", 200, results.get(2).get("status").asInt());
+        assertEquals("Не правильный статус невалидного id POST /rest/ships/batch/delete.", 400, results.get(3).get("status").asInt());
+
+        mockMvc.perform(get("/rest/ships/1")).andExpect(status().isNotFound());
+        assertEquals("Не правильное количество кораблей после POST /rest/ships/batch/delete.",
+                testsHelper.getAllShips().size() - 2L, count());
+    }
+
+    private JsonNode perform(MockHttpServletRequestBuilder request,
+                             String body) throws Exception {
+        MvcResult result = mockMvc.perform(request
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content(body))
+                .andExpect(status().isOk())
+                .andReturn();
+        return mapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private ShipInfoTest getShip(long id) throws Exception {
+        String content = mockMvc.perform(get("/rest/ships/" + id).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, ShipInfoTest.class);
+    }
+
+    private long count() throws Exception {
+        return Long.parseLong(mockMvc.perform(get("/rest/ships/count"))
+                .andReturn().getResponse().getContentAsString());
+    }
+}
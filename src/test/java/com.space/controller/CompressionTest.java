@@ -0,0 +1,87 @@
+package com.space.controller;
+
+import com.space.config.CompressionFilter;
+import com.space.config.MyWebAppInit;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNotEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class CompressionTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void largeJsonResponseIsGzipped() throws Exception {
+        MockMvc compressingMvc = compressingMvc();
+
+        String plain = compressingMvc.perform(get("/rest/ships?pageSize=40"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        MockHttpServletResponse gzipped = compressingMvc.perform(get("/rest/ships?pageSize=40")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertEquals("Не сжимается большой ответ на запрос GET /rest/ships.", "gzip", gzipped.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue("Сжатый ответ не меньше исходного.", gzipped.getContentAsByteArray().length < plain.length());
+        assertEquals("Сжатый ответ на запрос GET /rest/ships отличается от исходного.", plain, gunzip(gzipped.getContentAsByteArray()));
+    }
+
+    //test2
+    @Test
+    public void smallJsonResponseIsNotGzipped() throws Exception {
+        MockHttpServletResponse response = compressingMvc().perform(get("/rest/ships/count")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertEquals("Сжимается маленький ответ на запрос GET /rest/ships/count.", null, response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/count.", "40", response.getContentAsString());
+        assertEquals("Не указывается длина маленького ответа.", 2, response.getContentLength());
+    }
+
+    //test3
+    @Test
+    public void staticResourcesAreVersionedCachedAndGzipped() throws Exception {
+        String url = context.getBean(ResourceUrlProvider.class).getForLookupPath("/resources/scripts.js");
+        assertNotEquals("Ссылка на ресурс не содержит хэш содержимого.", "/resources/scripts.js", url);
+
+        MockHttpServletResponse plain = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        MockHttpServletResponse gzipped = mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertTrue("Статический ресурс не кэшируется надолго.",
+                plain.getHeader(HttpHeaders.CACHE_CONTROL).contains("max-age=31536000"));
+        assertEquals("Статический ресурс не сжимается.", "gzip", gzipped.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Сжатый статический ресурс отличается от исходного.",
+                plain.getContentAsString(), gunzip(gzipped.getContentAsByteArray()));
+    }
+
+    private MockMvc compressingMvc() {
+        return MockMvcBuilders.webAppContextSetup(context)
+                .addFilters(new CompressionFilter(MyWebAppInit.COMPRESSION_MIN_SIZE))
+                .build();
+    }
+
+    private static String gunzip(byte[] bytes) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+}
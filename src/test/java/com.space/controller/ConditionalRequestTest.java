@@ -0,0 +1,139 @@
+package com.space.controller;
+
+import com.space.controller.utils.TestsHelper;
+import com.space.service.ShipTableVersion;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.sql.DataSource;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ConditionalRequestTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void getShipWithCurrentETagReturnsNotModified() throws Exception {
+        String eTag = eTag(get("/rest/ships/5"));
+
+        MvcResult result = mockMvc.perform(get("/rest/ships/5").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+
+        assertEquals("Возвращается тело ответа при запросе GET /rest/ships/{id} с актуальным ETag.",
+                "", result.getResponse().getContentAsString());
+    }
+
+    //test2
+    @Test
+    public void updateChangesShipETag() throws Exception {
+        String eTag = eTag(get("/rest/ships/5"));
+
+        String newETag = mockMvc.perform(post("/rest/ships/5")
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"speed\":0.33}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertNotEquals("Не меняется ETag после запроса POST /rest/ships/{id}.", eTag, newETag);
+        mockMvc.perform(get("/rest/ships/5").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships/5").header(HttpHeaders.IF_NONE_MATCH, newETag))
+                .andExpect(status().isNotModified());
+    }
+
+    //test3
+    @Test
+    public void updateWithStaleETagIsRejected() throws Exception {
+        String eTag = eTag(get("/rest/ships/5"));
+        update("/rest/ships/5", eTag).andExpect(status().isOk());
+
+        update("/rest/ships/5", eTag).andExpect(status().isPreconditionFailed());
+        update("/rest/ships/5", "\"6-0\"").andExpect(status().isPreconditionFailed());
+    }
+
+    //test4
+    @Test
+    public void listAndCountWithCurrentETagReturnNotModifiedUntilTableChanges() throws Exception {
+        String listETag = eTag(get("/rest/ships?shipType=MILITARY&pageSize=5"));
+        String countETag = eTag(get("/rest/ships/count?shipType=MILITARY"));
+
+        mockMvc.perform(get("/rest/ships?shipType=MILITARY&pageSize=5").header(HttpHeaders.IF_NONE_MATCH, listETag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/rest/ships/count?shipType=MILITARY").header(HttpHeaders.IF_NONE_MATCH, countETag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/rest/ships")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/rest/ships?shipType=MILITARY&pageSize=5").header(HttpHeaders.IF_NONE_MATCH, listETag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships/count?shipType=MILITARY").header(HttpHeaders.IF_NONE_MATCH, countETag))
+                .andExpect(status().isOk());
+    }
+
+    //test5
+    @Test
+    public void listETagFollowsWritesAroundTheService() throws Exception {
+        String listETag = eTag(get("/rest/ships?shipType=MILITARY&pageSize=5"));
+
+        // another node or a script changed the table and appended the change to the feed
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        jdbcTemplate.update("UPDATE ship SET crewSize = 99 WHERE id = 4");
+        jdbcTemplate.update("INSERT INTO ship_change (ship_id, node) VALUES (4, 0)");
+        context.getBean(ShipTableVersion.class).refresh();
+
+        mockMvc.perform(get("/rest/ships?shipType=MILITARY&pageSize=5").header(HttpHeaders.IF_NONE_MATCH, listETag))
+                .andExpect(status().isOk());
+        assertEquals("ETag списка зависит от узла, а не от версии таблицы.",
+                "\"ships-" + context.getBean(ShipTableVersion.class).get() + "\"",
+                eTag(get("/rest/ships?shipType=MILITARY&pageSize=5")));
+    }
+
+    //test6
+    @Test
+    public void listETagFollowsChangesCommittedOutOfOrder() throws Exception {
+        ShipTableVersion tableVersion = context.getBean(ShipTableVersion.class);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        long last = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM ship_change", Long.class);
+
+        // the write that took the lower id of the feed commits after the other one
+        jdbcTemplate.update("INSERT INTO ship_change (id, ship_id, node) VALUES (?, 5, 0)", last + 2);
+        tableVersion.refresh();
+        String listETag = eTag(get("/rest/ships?shipType=MILITARY&pageSize=5"));
+
+        jdbcTemplate.update("UPDATE ship SET crewSize = 99 WHERE id = 4");
+        jdbcTemplate.update("INSERT INTO ship_change (id, ship_id, node) VALUES (?, 4, 0)", last + 1);
+        tableVersion.refresh();
+
+        mockMvc.perform(get("/rest/ships?shipType=MILITARY&pageSize=5").header(HttpHeaders.IF_NONE_MATCH, listETag))
+                .andExpect(status().isOk());
+    }
+
+    private String eTag(RequestBuilder request) throws Exception {
+        String eTag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals("Не возвращается ETag.", null, eTag);
+        return eTag;
+    }
+
+    private ResultActions update(String url, String ifMatch) throws Exception {
+        return mockMvc.perform(post(url)
+                .header(HttpHeaders.IF_MATCH, ifMatch)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"crewSize\":77}"));
+    }
+}
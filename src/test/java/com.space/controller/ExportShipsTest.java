@@ -0,0 +1,59 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.ShipType;
+import org.junit.Test;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ExportShipsTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void exportNdjsonWithoutFiltersReturnsAllShips() throws Exception {
+        MvcResult result = mockMvc.perform(get("/rest/ships/export"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<ShipInfoTest> actual = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n")) {
+            actual.add(mapper.readValue(line, ShipInfoTest.class));
+        }
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/export.",
+                testsHelper.getAllShips(), actual);
+    }
+
+    //test2
+    @Test
+    public void exportCsvWithFiltersShipTypeMinSpeed() throws Exception {
+        MvcResult result = mockMvc.perform(get("/rest/ships/export?format=CSV&shipType=MILITARY&minSpeed=0.5"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByMinSpeed(0.5,
+                testsHelper.getShipInfosByShipType(ShipType.MILITARY,
+                        testsHelper.getAllShips()));
+
+        assertEquals("Не правильный заголовок CSV при запросе GET /rest/ships/export?format=CSV.",
+                "id,name,planet,shipType,prodDate,isUsed,speed,crewSize,rating", lines[0]);
+        assertEquals("Возвращается не правильное количество строк при запросе GET /rest/ships/export?format=CSV.",
+                expected.size(), lines.length - 1);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Не правильная строка CSV при запросе GET /rest/ships/export?format=CSV.",
+                    String.valueOf(expected.get(i).id), lines[i + 1].substring(0, lines[i + 1].indexOf(',')));
+        }
+    }
+}
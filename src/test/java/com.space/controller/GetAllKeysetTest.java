@@ -0,0 +1,89 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetAllKeysetTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void getAllWithCursorWalksAllShipsById() throws Exception {
+        List<ShipInfoTest> expected = testsHelper.getAllShips();
+        expected.sort(Comparator.comparing(s -> s.id));
+
+        assertEquals("Постраничный обход по курсору GET /rest/ships?cursor= с сортировкой ID возвращает не все корабли.",
+                expected, walk("ID", 4));
+    }
+
+    //test2
+    @Test
+    public void getAllWithCursorWalksAllShipsByRating() throws Exception {
+        List<ShipInfoTest> expected = testsHelper.getAllShips();
+        expected.sort(Comparator.<ShipInfoTest, Double>comparing(s -> s.rating).thenComparing(s -> s.id));
+
+        assertEquals("Постраничный обход по курсору GET /rest/ships?cursor= с сортировкой RATING возвращает не все корабли.",
+                expected, walk("RATING", 5));
+    }
+
+    //test3
+    @Test
+    public void getAllWithCursorWalksAllShipsByDate() throws Exception {
+        List<ShipInfoTest> expected = testsHelper.getAllShips();
+        expected.sort(Comparator.<ShipInfoTest, Long>comparing(s -> s.prodDate).thenComparing(s -> s.id));
+
+        assertEquals("Постраничный обход по курсору GET /rest/ships?cursor= с сортировкой DATE возвращает не все корабли.",
+                expected, walk("DATE", 3));
+    }
+
+    //test4
+    @Test
+    public void getAllWithForeignCursorReturnsBadRequest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/rest/ships?cursor=&order=SPEED&pageSize=2")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        String cursor = result.getResponse().getHeader(ShipController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/rest/ships?order=DATE&cursor=" + cursor)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/ships?cursor=not-a-cursor")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<ShipInfoTest> walk(String order, int pageSize) throws Exception {
+        List<ShipInfoTest> ships = new ArrayList<>();
+        String cursor = "";
+        int requests = 0;
+        while (cursor != null) {
+            MvcResult result = mockMvc.perform(get("/rest/ships?order=" + order + "&pageSize=" + pageSize + "&cursor=" + cursor)
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            ships.addAll(mapper.readValue(result.getResponse().getContentAsString(), typeReference));
+            cursor = result.getResponse().getHeader(ShipController.NEXT_CURSOR_HEADER);
+            assertTrue("Курсор не заканчивается.", ++requests < 100);
+        }
+        return ships;
+    }
+}
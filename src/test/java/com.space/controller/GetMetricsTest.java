@@ -0,0 +1,35 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetMetricsTest extends AbstractTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getMetricsReturnsRegisteredMetersByPrefix() throws Exception {
+        MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+        meterRegistry.counter("test.metrics", "endpoint", "count").increment(3);
+
+        MvcResult result = mockMvc.perform(get("/rest/metrics?prefix=test.")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode metrics = mapper.readTree(result.getResponse().getContentAsString());
+
+        assertEquals("Возвращается не правильный набор метрик при запросе GET /rest/metrics с параметром prefix.",
+                1, metrics.size());
+        assertEquals("Возвращается не правильное значение метрики при запросе GET /rest/metrics.",
+                3.0, metrics.get("test.metrics{endpoint=count}").get("count").asDouble());
+    }
+}
@@ -0,0 +1,66 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.ShipType;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetPageTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void getPageWithoutFiltersReturnsFirstPageAndTotal() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/ships/page")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        JsonNode page = readPage(resultActions.andReturn());
+        List<ShipInfoTest> actual = mapper.readValue(page.get("ships").traverse(), typeReference);
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPage(0, 3, testsHelper.getAllShips());
+
+        assertEquals("Возвращается не правильный список при запросе GET /rest/ships/page.", expected, actual);
+        assertEquals("Возвращается не правильное количество при запросе GET /rest/ships/page.",
+                (long) testsHelper.getAllShips().size(), page.get("count").asLong());
+    }
+
+    //test2
+    @Test
+    public void getPageWithFiltersShipTypeIsUsedPageNumber() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/ships/page?shipType=MERCHANT&isUsed=true&pageNumber=1&pageSize=2&order=ID")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        JsonNode page = readPage(resultActions.andReturn());
+        List<ShipInfoTest> filtered = testsHelper.getShipInfosByIsUsed(true,
+                testsHelper.getShipInfosByShipType(ShipType.MERCHANT,
+                        testsHelper.getAllShips()));
+        List<ShipInfoTest> actual = mapper.readValue(page.get("ships").traverse(), typeReference);
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPage(1, 2,
+                testsHelper.getShipInfosByOrder(ShipOrder.ID, filtered));
+
+        assertEquals("Возвращается не правильный список при запросе GET /rest/ships/page с параметрами shipType, isUsed, pageNumber, pageSize и order.", expected, actual);
+        assertEquals("Возвращается не правильное количество при запросе GET /rest/ships/page с параметрами shipType и isUsed.",
+                (long) filtered.size(), page.get("count").asLong());
+    }
+
+    private JsonNode readPage(MvcResult result) throws Exception {
+        return mapper.readTree(result.getResponse().getContentAsString());
+    }
+}
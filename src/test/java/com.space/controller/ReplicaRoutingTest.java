@@ -0,0 +1,106 @@
+package com.space.controller;
+
+import com.space.config.ReplicaRoutingDataSource;
+import org.junit.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ReplicaRoutingTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void readOnlyTransactionsGoToReplica() {
+        EmbeddedDatabase primary = database();
+        EmbeddedDatabase replica = database();
+        try {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(
+                    new ReplicaRoutingDataSource(primary, Collections.singletonList(replica), 0));
+
+            assertEquals("Запрос только на чтение выполняется не на реплике.", url(replica), url(dataSource, true));
+            assertEquals("Запрос на запись выполняется не на основной базе.", url(primary), url(dataSource, false));
+            assertEquals("Запрос без транзакции выполняется не на основной базе.", url(primary), url(new JdbcTemplate(dataSource)));
+            assertEquals("Без допустимой задержки реплики чтение после записи не идет на реплику.", url(replica), url(dataSource, true));
+        } finally {
+            primary.shutdown();
+            replica.shutdown();
+        }
+    }
+
+    //test2
+    @Test
+    public void readsStayOnPrimaryWhileReplicaMayLag() {
+        EmbeddedDatabase primary = database();
+        EmbeddedDatabase replica = database();
+        try {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(
+                    new ReplicaRoutingDataSource(primary, Collections.singletonList(replica), 60000));
+
+            assertEquals("Запрос только на чтение выполняется не на реплике.", url(replica), url(dataSource, true));
+            url(dataSource, false);
+            assertEquals("Чтение сразу после записи идет на отстающую реплику.", url(primary), url(dataSource, true));
+
+            DataSource noReplicas = new LazyConnectionDataSourceProxy(
+                    new ReplicaRoutingDataSource(primary, Collections.emptyList(), 0));
+            assertEquals("Без реплик чтение выполняется не на основной базе.", url(primary), url(noReplicas, true));
+        } finally {
+            primary.shutdown();
+            replica.shutdown();
+        }
+    }
+
+    //test3
+    @Test
+    public void transactionTellsWhetherItReadsReplica() {
+        EmbeddedDatabase primary = database();
+        EmbeddedDatabase replica = database();
+        try {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(
+                    new ReplicaRoutingDataSource(primary, Collections.singletonList(replica), 0));
+
+            assertEquals("Транзакция на реплике не знает об этом.", true, readsReplica(dataSource, true));
+            assertEquals("Транзакция на основной базе считает, что читает реплику.", false, readsReplica(dataSource, false));
+            assertEquals("Отметка о чтении реплики остается после транзакции.", false, ReplicaRoutingDataSource.isReadingReplica());
+        } finally {
+            primary.shutdown();
+            replica.shutdown();
+        }
+    }
+
+    private static boolean readsReplica(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> {
+            url(new JdbcTemplate(dataSource));
+            return ReplicaRoutingDataSource.isReadingReplica();
+        });
+    }
+
+    private static EmbeddedDatabase database() {
+        return new EmbeddedDatabaseBuilder().generateUniqueName(true).setType(H2).build();
+    }
+
+    private static String url(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> url(new JdbcTemplate(dataSource)));
+    }
+
+    private static String url(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getURL());
+    }
+
+    private static String url(EmbeddedDatabase database) {
+        return url(new JdbcTemplate(database));
+    }
+}
@@ -0,0 +1,107 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.config.RequestMetricsInterceptor;
+import com.space.service.RequestStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNotEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class RequestMetricsTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void debugHeaderReportsRequestCosts() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/rest/ships?shipType=MILITARY&pageSize=5")
+                .header(RequestMetricsInterceptor.DEBUG_HEADER, "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        String header = response.getHeader(RequestMetricsInterceptor.DEBUG_HEADER);
+        assertNotEquals("Не возвращается заголовок " + RequestMetricsInterceptor.DEBUG_HEADER + ".", null, header);
+        Map<String, String> stats = parse(header);
+        int ships = new ObjectMapper().readValue(response.getContentAsByteArray(), List.class).size();
+
+        assertEquals("Не правильно посчитаны байты JSON.", String.valueOf(response.getContentAsByteArray().length), stats.get("json"));
+        assertEquals("Список кораблей загружается как сущности.", "0", stats.get("entities"));
+        assertTrue("Не посчитаны SQL запросы.", Long.parseLong(stats.get("statements")) >= 1);
+        assertTrue("Не посчитаны прочитанные строки.", Long.parseLong(stats.get("rows")) >= ships);
+
+        String shipHeader = mockMvc.perform(get("/rest/ships/5").header(RequestMetricsInterceptor.DEBUG_HEADER, "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(RequestMetricsInterceptor.DEBUG_HEADER);
+        assertEquals("Не правильно посчитаны загруженные сущности.", "1", parse(shipHeader).get("entities"));
+
+        assertEquals("Заголовок " + RequestMetricsInterceptor.DEBUG_HEADER + " возвращается без запроса.", null,
+                mockMvc.perform(get("/rest/ships")).andReturn().getResponse().getHeader(RequestMetricsInterceptor.DEBUG_HEADER));
+    }
+
+    //test2
+    @Test
+    public void latencyAndCostsAreRecordedPerEndpoint() throws Exception {
+        MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+        long before = requests(meterRegistry);
+
+        mockMvc.perform(get("/rest/ships/5")).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships/6")).andExpect(status().isOk());
+
+        assertEquals("Не записывается время запроса GET /rest/ships/{id}.", before + 2, requests(meterRegistry));
+        assertNotEquals("Не публикуется p99 времени запроса GET /rest/ships/{id}.", null, meterRegistry
+                .find("http.server.requests.percentile").tags("uri", "/rest/ships/{id}", "phi", "0.99").gauge());
+        assertTrue("Не записываются байты JSON ответа GET /rest/ships/{id}.", meterRegistry
+                .get("http.server.requests.json").tags("uri", "/rest/ships/{id}", "status", "200").summary().totalAmount() > 0);
+    }
+
+    //test3
+    @Test
+    public void statementsAreCountedOnlyWhenAskedFor() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+
+        RequestStats quiet = new RequestStats(false);
+        RequestStats outer = RequestStats.bind(quiet);
+        try {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ship", Long.class);
+        } finally {
+            RequestStats.bind(outer);
+        }
+        assertEquals("SQL запросы считаются без заголовка " + RequestMetricsInterceptor.DEBUG_HEADER + ".", 0L, quiet.getStatements());
+
+        RequestStats counting = new RequestStats(false, true, false);
+        outer = RequestStats.bind(counting);
+        try {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ship", Long.class);
+        } finally {
+            RequestStats.bind(outer);
+        }
+        assertEquals("Не посчитан SQL запрос.", 1L, counting.getStatements());
+        assertEquals("Не посчитана прочитанная строка.", 1L, counting.getRows());
+    }
+
+    private static long requests(MeterRegistry meterRegistry) {
+        Timer timer = meterRegistry.find("http.server.requests").tags("method", "GET", "uri", "/rest/ships/{id}", "status", "200").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private static Map<String, String> parse(String header) {
+        Map<String, String> values = new HashMap<>();
+        for (String part : header.split(";")) {
+            String[] pair = part.trim().split("=");
+            values.put(pair[0], pair[1]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,141 @@
+package com.space.controller;
+
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import com.space.service.FleetGenerator;
+import com.space.service.ShipBitmapIndex;
+import com.space.service.ShipChangeListener;
+import com.space.service.ShipService;
+import com.space.service.ShipTableVersion;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.space.controller.utils.TestsHelper.describe;
+import static com.space.controller.utils.TestsHelper.randomFilter;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipBitmapIndexTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void bitmapIndexReturnsSameShipsAsDatabase() {
+        assertSameAsDatabase(new Random(42), 300);
+    }
+
+    //test2
+    @Test
+    public void bitmapIndexFollowsCreateUpdateAndDelete() {
+        ShipService shipService = context.getBean(ShipService.class);
+        shipService.createAll(new FleetGenerator(11).next(2000));
+
+        List<Long> deleted = new ArrayList<>();
+        for (long id = 1; id <= 2040; id += 5) {
+            deleted.add(id);
+        }
+        shipService.deleteAll(deleted);
+
+        for (long id = 3; id <= 2040; id += 11) {
+            if (deleted.contains(id)) {
+                continue;
+            }
+            Ship changes = new Ship();
+            changes.setCrewSize(42);
+            changes.setUsed(id % 2 == 0);
+            changes.setShipType(ShipType.MERCHANT);
+            shipService.update(id, changes);
+        }
+
+        assertSameAsDatabase(new Random(11), 300);
+    }
+
+    //test3
+    @Test
+    public void indexesFollowWritesOfOtherNodes() throws Exception {
+        String before = mockMvc.perform(get("/rest/ships/count?shipType=MILITARY&name=e"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // written by another node, which appended the change to the feed
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        jdbcTemplate.update("INSERT INTO ship (name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) " +
+                "VALUES ('Nemesis', 'Pluto', 'MILITARY', '3000-01-01', false, 0.5, 100, 1.5)");
+        jdbcTemplate.update("INSERT INTO ship_change (ship_id, node) SELECT MAX(id), 0 FROM ship");
+        context.getBean(ShipTableVersion.class).refresh();
+
+        String after = mockMvc.perform(get("/rest/ships/count?shipType=MILITARY&name=e"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Индексы не видят запись другого узла.", Long.parseLong(before) + 1, Long.parseLong(after));
+        assertSameAsDatabase(new Random(3), 100);
+
+        jdbcTemplate.update("DELETE FROM ship WHERE shipType = 'MILITARY' AND id < 10");
+        jdbcTemplate.update("INSERT INTO ship_change (ship_id, node) SELECT x, 0 FROM SYSTEM_RANGE(1, 9)");
+        context.getBean(ShipTableVersion.class).refresh();
+        assertSameAsDatabase(new Random(4), 100);
+    }
+
+    //test4
+    @Test
+    public void sparseIdsTakeNoMemoryForTheGap() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        jdbcTemplate.update("INSERT INTO ship (id, name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) " +
+                "VALUES (2000000000, 'Far Away', 'Eris', 'TRANSPORT', '2990-06-01', true, 0.33, 250, 0.4)");
+        jdbcTemplate.update("INSERT INTO ship_change (ship_id, node) VALUES (2000000000, 0)");
+        context.getBean(ShipTableVersion.class).refresh();
+        assertSameAsDatabase(new Random(5), 100);
+
+        context.getBean(ShipBitmapIndex.class).reload();
+        assertSameAsDatabase(new Random(6), 100);
+    }
+
+    //test5
+    @Test
+    public void shipsWithNullColumnsMatchNoFilterOnThem() {
+        // V1 allows NULL in every column, such rows may predate the validation of the API
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        jdbcTemplate.update("INSERT INTO ship (name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) " +
+                "VALUES ('Ghost', NULL, NULL, NULL, NULL, NULL, NULL, NULL)");
+        jdbcTemplate.update("INSERT INTO ship (name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) " +
+                "VALUES (NULL, 'Eris', 'MERCHANT', '3001-01-01', false, NULL, 300, NULL)");
+        jdbcTemplate.update("INSERT INTO ship_change (ship_id, node) SELECT id, 0 FROM ship WHERE speed IS NULL");
+        context.getBean(ShipTableVersion.class).refresh();
+        assertSameAsDatabase(new Random(7), 200);
+
+        // as on startup
+        context.getBeansOfType(ShipChangeListener.class).values().forEach(ShipChangeListener::reload);
+        assertSameAsDatabase(new Random(8), 200);
+    }
+
+    private void assertSameAsDatabase(Random random, int filters) {
+        ShipService shipService = context.getBean(ShipService.class);
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        for (int i = 0; i < filters; i++) {
+            ShipFilter filter = randomFilter(random);
+            ShipOrder order = ShipOrder.values()[random.nextInt(ShipOrder.values().length)];
+            PageRequest pageable = PageRequest.of(random.nextInt(3), 1 + random.nextInt(10), Sort.by(order.getFieldName(), "id"));
+
+            Page<Ship> expected = shipRepository.findAll(shipService.selectBy(filter), pageable);
+            Page<Ship> actual = shipService.getShipsPage(filter, pageable);
+
+            assertEquals("Битовые индексы возвращают не те корабли для фильтра " + filter + " и сортировки " + order + ".",
+                    describe(expected.getContent()), describe(actual.getContent()));
+            assertEquals("Битовые индексы возвращают не правильное количество страниц для фильтра " + filter + ".",
+                    expected.getTotalElements(), actual.getTotalElements());
+            assertEquals("Битовые индексы возвращают не правильное количество для фильтра " + filter + ".",
+                    expected.getTotalElements(), shipService.countShips(filter));
+        }
+    }
+}
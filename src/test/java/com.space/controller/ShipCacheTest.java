@@ -0,0 +1,89 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.Ship;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipCacheTest extends AbstractTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getShipTwiceIsServedFromSecondLevelCache() throws Exception {
+        Statistics statistics = statistics();
+        long hits = statistics.getSecondLevelCacheHitCount();
+
+        mockMvc.perform(get("/rest/ships/1").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships/1").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isOk());
+
+        assertTrue("Повторный запрос GET /rest/ships/{id} не попадает в кэш второго уровня.",
+                statistics.getSecondLevelCacheHitCount() > hits);
+    }
+
+    //test2
+    @Test
+    public void updatedShipIsNotServedStaleFromCache() throws Exception {
+        mockMvc.perform(get("/rest/ships/1").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships?name=" + "123456789").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isOk());
+
+        mockMvc.perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+
+        String ship = mockMvc.perform(get("/rest/ships/1").accept(MediaType.APPLICATION_JSON_UTF8))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("После обновления GET /rest/ships/{id} возвращает устаревшие данные из кэша.",
+                "123456789", mapper.readValue(ship, ShipInfoTest.class).name);
+
+        String ships = mockMvc.perform(get("/rest/ships/count?name=" + "123456789").accept(MediaType.APPLICATION_JSON_UTF8))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("После обновления GET /rest/ships/count возвращает устаревшие данные из кэша запросов.",
+                "1", ships);
+    }
+
+    //test3
+    @Test
+    public void deleteKeepsOtherShipsInSecondLevelCache() throws Exception {
+        mockMvc.perform(get("/rest/ships/1").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships/2").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/rest/ships/3").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isOk());
+        mockMvc.perform(post("/rest/ships/batch/delete")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("[4, 5]"))
+                .andExpect(status().isOk());
+
+        Cache cache = context.getBean(EntityManagerFactory.class).getCache();
+        assertTrue("DELETE /rest/ships/{id} вытесняет из кэша второго уровня другие корабли.",
+                cache.contains(Ship.class, 1L) && cache.contains(Ship.class, 2L));
+        mockMvc.perform(get("/rest/ships/3").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/rest/ships/4").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isNotFound());
+
+        Statistics statistics = statistics();
+        long hits = statistics.getSecondLevelCacheHitCount();
+        mockMvc.perform(get("/rest/ships/1").accept(MediaType.APPLICATION_JSON_UTF8)).andExpect(status().isOk());
+        assertTrue("После удаления другого корабля GET /rest/ships/{id} не попадает в кэш второго уровня.",
+                statistics.getSecondLevelCacheHitCount() > hits);
+    }
+
+    private Statistics statistics() {
+        return context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+}
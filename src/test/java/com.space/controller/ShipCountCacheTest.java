@@ -0,0 +1,85 @@
+package com.space.controller;
+
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import com.space.service.FleetGenerator;
+import com.space.service.ShipService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.space.controller.utils.TestsHelper.randomFilter;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipCountCacheTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void repeatedCountIsServedFromCache() throws Exception {
+        double hits = hits();
+
+        String first = count("/rest/ships/count?shipType=MILITARY&isUsed=false&minSpeed=0.3");
+        String second = count("/rest/ships/count?isUsed=false&shipType=MILITARY&minSpeed=0.3&name=");
+
+        assertEquals("Возвращается не правильный результат при повторном запросе GET /rest/ships/count.", first, second);
+        assertEquals("Повторный запрос GET /rest/ships/count с теми же фильтрами не берется из кэша.", hits + 1, hits());
+    }
+
+    //test2
+    @Test
+    public void cachedCountsFollowCreateUpdateAndDelete() {
+        ShipService shipService = context.getBean(ShipService.class);
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        List<ShipFilter> filters = new ArrayList<>();
+        Random random = new Random(16);
+        for (int i = 0; i < 200; i++) {
+            ShipFilter filter = randomFilter(random);
+            filters.add(filter);
+            shipService.countShips(filter);
+        }
+
+        shipService.createAll(new FleetGenerator(16).next(500));
+        List<Long> deleted = new ArrayList<>();
+        for (long id = 1; id <= 540; id += 4) {
+            deleted.add(id);
+        }
+        shipService.deleteAll(deleted);
+        for (long id = 2; id <= 540; id += 9) {
+            if (deleted.contains(id)) {
+                continue;
+            }
+            Ship changes = new Ship();
+            changes.setSpeed(0.77);
+            changes.setShipType(ShipType.TRANSPORT);
+            changes.setUsed(id % 3 == 0);
+            shipService.update(id, changes);
+        }
+
+        double hits = hits();
+        for (ShipFilter filter : filters) {
+            assertEquals("Кэш возвращает не правильное количество для фильтра " + filter + " после изменений.",
+                    shipRepository.count(shipService.selectBy(filter)), shipService.countShips(filter));
+        }
+        assertTrue("Количество после изменений не берется из кэша.", hits() > hits);
+    }
+
+    private String count(String url) throws Exception {
+        return mockMvc.perform(get(url).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private double hits() {
+        return context.getBean(MeterRegistry.class).get("cache.gets")
+                .tags("cache", "shipCounts", "result", "hit").counter().count();
+    }
+}
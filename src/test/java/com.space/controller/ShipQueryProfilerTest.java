@@ -0,0 +1,88 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.model.ShipFilter;
+import com.space.repository.ShipRepository;
+import com.space.service.ShipQueryProfiler;
+import com.space.service.ShipService;
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipQueryProfilerTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void queriesAreReportedByShape() throws Exception {
+        mockMvc.perform(delete("/rest/profiler")).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships?cursor=&planet=ar&minRating=1&order=DATE")).andExpect(status().isOk());
+        assertEquals("Выключенный профилировщик записывает запросы.", "[]",
+                mockMvc.perform(get("/rest/profiler")).andReturn().getResponse().getContentAsString());
+
+        mockMvc.perform(put("/rest/profiler?enabled=true")).andExpect(status().isOk());
+        try {
+            mockMvc.perform(get("/rest/ships?cursor=&planet=ar&minRating=1&order=DATE")).andExpect(status().isOk());
+            mockMvc.perform(get("/rest/ships?cursor=&planet=Earth&minRating=2&order=DATE")).andExpect(status().isOk());
+            mockMvc.perform(get("/rest/ships?cursor=&shipType=MILITARY&order=DATE")).andExpect(status().isOk());
+        } finally {
+            mockMvc.perform(put("/rest/profiler?enabled=false")).andExpect(status().isOk());
+        }
+
+        String json = mockMvc.perform(get("/rest/profiler?top=10"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<?> shapes = new ObjectMapper().readValue(json, List.class);
+
+        assertEquals("Не правильное количество форм запросов в отчете GET /rest/profiler.", 2, shapes.size());
+        Map<?, ?> planetAndRating = shape(shapes, "slice planet~ids rating>= order=prodDate,id");
+        assertEquals("Не правильно посчитаны запросы одной формы.", 2, ((Number) planetAndRating.get("executions")).intValue());
+        assertTrue("Не возвращается форма запроса по типу корабля.", shape(shapes, "slice shipType order=prodDate,id") != null);
+
+        mockMvc.perform(get("/rest/profiler?top=0")).andExpect(status().isBadRequest());
+    }
+
+    //test2
+    @Test
+    public void slowQueryGetsItsPlan() throws InterruptedException {
+        ShipQueryProfiler profiler = new ShipQueryProfiler(context.getBean(DataSource.class), true, 0);
+        ShipService shipService = context.getBean(ShipService.class);
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        ShipFilter filter = new ShipFilter();
+        filter.setPlanet("Earth");
+        filter.setMinRating(1.0);
+        Sort sort = Sort.by("prodDate", "id");
+
+        profiler.profile("slice", filter, null, sort, () -> shipRepository.findFirst(shipService.queryBy(filter), sort, 5));
+
+        ShipQueryProfiler.ShapeStats stats = profiler.report(1).get(0);
+        assertEquals("Не правильная форма запроса.", "slice planet~ rating>= order=prodDate,id", stats.getShape());
+        // the plan is taken on the profiler's thread
+        for (int i = 0; i < 500 && stats.getPlan() == null; i++) {
+            Thread.sleep(10);
+            stats = profiler.report(1).get(0);
+        }
+        List<String> plan = stats.getPlan();
+        assertTrue("Не сохраняется план медленного запроса.", plan != null && plan.size() >= 2);
+        assertTrue("План не начинается с SQL запроса.", plan.get(0).toLowerCase().startsWith("select"));
+        assertTrue("Не выполняется EXPLAIN медленного запроса.", !plan.get(1).startsWith("EXPLAIN failed"));
+    }
+
+    private static Map<?, ?> shape(List<?> shapes, String shape) {
+        for (Object entry : shapes) {
+            if (shape.equals(((Map<?, ?>) entry).get("shape"))) {
+                return (Map<?, ?>) entry;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package com.space.controller;
+
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.repository.ShipQuery;
+import com.space.repository.ShipRepository;
+import com.space.service.RequestStats;
+import com.space.service.ShipService;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.space.controller.utils.TestsHelper.describe;
+import static com.space.controller.utils.TestsHelper.selectAfter;
+import static com.space.controller.utils.TestsHelper.randomFilter;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ShipQueryTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void shapeQueriesReturnSameShipsAsSpecifications() {
+        ShipService shipService = context.getBean(ShipService.class);
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        Random random = new Random(23);
+        for (int i = 0; i < 200; i++) {
+            ShipFilter filter = randomFilter(random);
+            ShipOrder order = ShipOrder.values()[random.nextInt(ShipOrder.values().length)];
+            Sort sort = Sort.by(order.getFieldName(), "id");
+            PageRequest pageable = PageRequest.of(random.nextInt(3), 1 + random.nextInt(10), sort);
+
+            assertEquals("Не совпадает количество кораблей для фильтра #" + i + ".",
+                    shipRepository.count(shipService.selectBy(filter)),
+                    shipRepository.countMatching(shipService.queryBy(filter)));
+            assertEquals("Не совпадает страница кораблей для фильтра #" + i + ".",
+                    describe(shipRepository.findAll(shipService.selectBy(filter), pageable).getContent()),
+                    describe(shipRepository.findPage(shipService.queryBy(filter), pageable).getContent()));
+
+            List<Ship> first = shipRepository.findAll(shipService.selectBy(filter), PageRequest.of(0, 3, sort)).getContent();
+            if (first.isEmpty()) {
+                continue;
+            }
+            ShipCursor after = ShipCursor.after(order, first.get(first.size() - 1));
+            assertEquals("Не совпадает следующая порция кораблей для фильтра #" + i + ".",
+                    describe(shipRepository.findAll(shipService.selectBy(filter)
+                            .and(selectAfter(order.getFieldName(), after.getSortKey(), after.getId())), PageRequest.of(0, 5, sort)).getContent()),
+                    describe(shipService.getShipsSlice(filter, order.getFieldName(), after.getSortKey(), after.getId(), sort, 5)));
+        }
+    }
+
+    //test2
+    @Test
+    public void sameShapeRunsSameSql() {
+        ShipService shipService = context.getBean(ShipService.class);
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        ShipFilter earth = new ShipFilter();
+        earth.setMinRating(1.0);
+        earth.setMaxCrewSize(100);
+        ShipFilter mars = new ShipFilter();
+        mars.setMinRating(2.5);
+        mars.setMaxCrewSize(3000);
+
+        RequestStats stats = new RequestStats(false, true);
+        RequestStats outer = RequestStats.bind(stats);
+        try {
+            shipRepository.findContent(shipService.queryBy(earth), PageRequest.of(2, 5, Sort.by("speed", "id")));
+            shipRepository.findContent(shipService.queryBy(mars), PageRequest.of(1, 5, Sort.by("speed", "id")));
+        } finally {
+            RequestStats.bind(outer);
+        }
+
+        List<RequestStats.ExecutedStatement> executed = stats.getExecuted();
+        assertEquals("Не правильное количество запросов.", 2, executed.size());
+        assertEquals("Запросы одной формы отличаются текстом SQL.", executed.get(0).getSql(), executed.get(1).getSql());
+    }
+
+    //test3
+    @Test
+    public void idListsOfDifferentLengthsRunSameSql() {
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        PageRequest pageable = PageRequest.of(0, 5, Sort.by("id"));
+
+        RequestStats stats = new RequestStats(false, true);
+        RequestStats outer = RequestStats.bind(stats);
+        try {
+            shipRepository.findContent(new ShipQuery().ids(Arrays.asList(1L, 2L, 3L)), pageable);
+            shipRepository.findContent(new ShipQuery().ids(Arrays.asList(4L, 5L, 6L, 7L)), pageable);
+            shipRepository.findContent(new ShipQuery().name("a", Arrays.asList(8L, 9L, 10L)), pageable);
+            shipRepository.findContent(new ShipQuery().name("b", Arrays.asList(11L, 12L, 13L, 14L)), pageable);
+        } finally {
+            RequestStats.bind(outer);
+        }
+
+        List<RequestStats.ExecutedStatement> executed = stats.getExecuted();
+        assertEquals("Не правильное количество запросов.", 4, executed.size());
+        assertEquals("Списки id разной длины дают разный текст SQL.", executed.get(0).getSql(), executed.get(1).getSql());
+        assertEquals("Списки id поиска разной длины дают разный текст SQL.", executed.get(2).getSql(), executed.get(3).getSql());
+    }
+
+    //test4
+    @Test
+    public void projectedShipsComeFromQueryCache() {
+        ShipService shipService = context.getBean(ShipService.class);
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        ShipFilter filter = new ShipFilter();
+        filter.setPlanet("ar");
+        PageRequest pageable = PageRequest.of(0, 4, Sort.by("rating", "id"));
+
+        List<Ship> first = shipRepository.findContent(shipService.queryBy(filter), pageable);
+        RequestStats stats = new RequestStats(false);
+        RequestStats outer = RequestStats.bind(stats);
+        List<Ship> second;
+        try {
+            second = shipRepository.findContent(shipService.queryBy(filter), pageable);
+        } finally {
+            RequestStats.bind(outer);
+        }
+
+        assertEquals("Повторный запрос не берется из кэша запросов.", 0L, stats.getStatements());
+        assertEquals("Корабли из кэша запросов отличаются.", describe(first), describe(second));
+        assertEquals("Корабли списка загружаются как сущности.", 0L, stats.getEntities());
+    }
+}
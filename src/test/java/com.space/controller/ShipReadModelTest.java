@@ -0,0 +1,88 @@
+package com.space.controller;
+
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import com.space.service.FleetGenerator;
+import com.space.service.ShipReadModel;
+import com.space.service.ShipService;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.space.controller.utils.TestsHelper.describe;
+import static com.space.controller.utils.TestsHelper.randomFilter;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ShipReadModelTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void readModelReturnsSameShipsAsDatabase() {
+        ShipReadModel readModel = readModel();
+        assertSameAsDatabase(readModel, new Random(42), 300);
+    }
+
+    //test2
+    @Test
+    public void readModelFollowsCreateUpdateAndDelete() {
+        ShipService shipService = context.getBean(ShipService.class);
+        ShipReadModel readModel = readModel();
+
+        List<Ship> created = new FleetGenerator(7).next(500);
+        shipService.createAll(created);
+        readModel.onSaved(created);
+
+        List<Long> deleted = new ArrayList<>();
+        for (long id = 1; id <= 540; id += 3) {
+            deleted.add(id);
+        }
+        shipService.deleteAll(deleted);
+        readModel.onDeleted(deleted);
+
+        for (long id = 2; id <= 540; id += 7) {
+            if (deleted.contains(id)) {
+                continue;
+            }
+            Ship changes = new Ship();
+            changes.setSpeed(0.55);
+            changes.setShipType(ShipType.MILITARY);
+            readModel.onSaved(Collections.singletonList(shipService.update(id, changes)));
+        }
+
+        assertSameAsDatabase(readModel, new Random(7), 300);
+    }
+
+    private ShipReadModel readModel() {
+        ShipReadModel readModel = new ShipReadModel(context.getBean(ShipRepository.class), true);
+        readModel.reload();
+        return readModel;
+    }
+
+    private void assertSameAsDatabase(ShipReadModel readModel, Random random, int filters) {
+        ShipService shipService = context.getBean(ShipService.class);
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        for (int i = 0; i < filters; i++) {
+            ShipFilter filter = randomFilter(random);
+            ShipOrder order = ShipOrder.values()[random.nextInt(ShipOrder.values().length)];
+            int pageNumber = random.nextInt(3);
+            int pageSize = 1 + random.nextInt(10);
+
+            Page<Ship> expected = shipRepository.findAll(shipService.selectBy(filter),
+                    PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName(), "id")));
+            Page<Ship> actual = readModel.findPage(filter, PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName())));
+
+            assertEquals("Модель чтения возвращает не те корабли для фильтра " + filter + " и сортировки " + order + ".",
+                    describe(expected.getContent()), describe(actual.getContent()));
+            assertEquals("Модель чтения возвращает не правильное количество для фильтра " + filter + ".",
+                    expected.getTotalElements(), readModel.count(filter));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.space.controller;
+
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.Ship;
+import com.space.model.ShipText;
+import com.space.repository.ShipQuery;
+import com.space.repository.ShipRepository;
+import com.space.service.FleetGenerator;
+import com.space.service.ShipSearchIndex;
+import com.space.service.ShipService;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipSearchIndexTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+
+    //test1
+    @Test
+    public void indexFindsSameShipsAsSubstringSearch() {
+        ShipSearchIndex searchIndex = context.getBean(ShipSearchIndex.class);
+        List<ShipInfoTest> ships = testsHelper.getAllShips();
+
+        for (String text : Arrays.asList("r", "ra", "ca", "nt", "Orion", "ion", "ship", "xyz")) {
+            assertEquals("Индекс находит не те корабли по имени " + text + ".",
+                    ids(testsHelper.getShipInfosByName(text, ships)), searchIndex.findByName(text));
+        }
+        for (String text : Arrays.asList("a", "ur", "us", "Earth", "Mars", "arth", "xyz")) {
+            assertEquals("Индекс находит не те корабли по планете " + text + ".",
+                    ids(testsHelper.getShipInfosByPlanet(text, ships)), searchIndex.findByPlanet(text));
+        }
+    }
+
+    //test2
+    @Test
+    public void indexFollowsCreateUpdateAndDelete() throws Exception {
+        mockMvc.perform(post("/rest/ships/")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+        assertCount("name=3456", "1");
+
+        mockMvc.perform(post("/rest/ships/41")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Stargazer\"}"))
+                .andExpect(status().isOk());
+        assertCount("name=3456", "0");
+        assertCount("name=gaz", "1");
+
+        mockMvc.perform(delete("/rest/ships/41"))
+                .andExpect(status().isOk());
+        assertCount("name=gaz", "0");
+    }
+
+    //test3
+    @Test
+    public void indexMatchesLikeTheDatabase() {
+        ShipSearchIndex searchIndex = context.getBean(ShipSearchIndex.class);
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        ShipService shipService = context.getBean(ShipService.class);
+        List<Ship> ships = new FleetGenerator(7).next(3);
+        ships.get(0).setName("Falcon 50%");
+        ships.get(1).setName("falcon 5x0");
+        ships.get(2).setName("Old_Timer");
+        shipService.createAll(ships);
+
+        for (String text : Arrays.asList("falcon", "FALCON", "50%", "5_0", "d_t", "D_T", "_", "%", "!")) {
+            List<Long> like = new ArrayList<>();
+            for (Ship ship : shipRepository.findContent(new ShipQuery().name(text, null), Pageable.unpaged())) {
+                like.add(ship.getId());
+            }
+            Collections.sort(like);
+            assertEquals("Индекс и LIKE находят разные корабли по имени " + text + ".", like, searchIndex.findByName(text));
+        }
+        assertEquals("Поиск по имени учитывает регистр.", 2, searchIndex.findByName("FALCON").size());
+        assertEquals("Символ % в имени работает как шаблон.", 1, searchIndex.findByName("50%").size());
+        assertEquals("Символ _ в имени работает как шаблон.", 0, searchIndex.findByName("5_0").size());
+        assertEquals("Поиск по имени учитывает акценты.", true, ShipText.contains("Éclair", ShipText.fold("ecl")));
+    }
+
+    private void assertCount(String filter, String expected) throws Exception {
+        String count = mockMvc.perform(get("/rest/ships/count?" + filter).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Возвращается не правильное количество при запросе GET /rest/ships/count?" + filter + ".",
+                expected, count);
+    }
+
+    private static List<Long> ids(List<ShipInfoTest> ships) {
+        List<Long> ids = new ArrayList<>();
+        for (ShipInfoTest ship : ships) {
+            ids.add(ship.id);
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+}
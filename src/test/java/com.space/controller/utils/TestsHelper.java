@@ -1,12 +1,21 @@
 package com.space.controller.utils;
 
 import com.space.controller.ShipOrder;
+import com.space.model.Ship;
+import com.space.model.ShipFilter;
+import com.space.model.ShipText;
 import com.space.model.ShipType;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 public class TestsHelper {
     public final static String NORMAL_JSON =
@@ -224,7 +233,7 @@ public class TestsHelper {
     public List<ShipInfoTest> getShipInfosByName(String name, List<ShipInfoTest> ships) {
         List<ShipInfoTest> result = new ArrayList<>();
         for (ShipInfoTest ship : ships) {
-            if (ship.name.contains(name)) {
+            if (ShipText.contains(ship.name, ShipText.fold(name))) {
                 result.add(ship);
             }
         }
@@ -234,7 +243,7 @@ public class TestsHelper {
     public List<ShipInfoTest> getShipInfosByPlanet(String planet, List<ShipInfoTest> ships) {
         List<ShipInfoTest> result = new ArrayList<>();
         for (ShipInfoTest ship : ships) {
-            if (ship.planet.contains(planet)) {
+            if (ShipText.contains(ship.planet, ShipText.fold(planet))) {
                 result.add(ship);
             }
         }
@@ -383,4 +392,86 @@ public class TestsHelper {
     public ShipInfoTest getShipInfosById(long id) {
         return allShips.stream().filter(s -> s.id == id).findFirst().orElse(null);
     }
-}
\ No newline at end of file
+
+    /**
+     * Ships after the keyset position, in the order of {@code fieldName} and then id, as a Specification
+     * to check the keyset queries of the service against.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Ship> selectAfter(String fieldName, Comparable<?> sortKey, Long id) {
+        return (root, query, criteriaBuilder) -> {
+            if (id == null) {
+                return null;
+            }
+            Predicate afterId = criteriaBuilder.greaterThan(root.get("id"), id);
+            if (sortKey == null) {
+                return afterId;
+            }
+            Path<Comparable> sortPath = root.get(fieldName);
+            Comparable key = sortKey;
+            return criteriaBuilder.or(criteriaBuilder.greaterThan(sortPath, key),
+                    criteriaBuilder.and(criteriaBuilder.equal(sortPath, key), afterId));
+        };
+    }
+
+    private static final long[] FILTER_DATES = {26192246400000L, 31000000000000L, 32188140000000L, 32998274577071L, 33134745600000L};
+
+    /**
+     * A filter with each parameter set at random, for comparing the in-memory paths with the database.
+     */
+    public static ShipFilter randomFilter(Random random) {
+        ShipFilter filter = new ShipFilter();
+        if (random.nextInt(4) == 0) {
+            filter.setName(pick(random, "a", "ra", "er", "Eagle", "1", "EAGLE", "r_"));
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setPlanet(pick(random, "ar", "Earth", "us", "n", "EARTH", "%"));
+        }
+        if (random.nextInt(3) == 0) {
+            filter.setShipType(ShipType.values()[random.nextInt(ShipType.values().length)]);
+        }
+        if (random.nextInt(3) == 0) {
+            filter.setIsUsed(random.nextBoolean());
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setAfter(FILTER_DATES[random.nextInt(FILTER_DATES.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setBefore(FILTER_DATES[random.nextInt(FILTER_DATES.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setMinSpeed(random.nextInt(100) / 100.0);
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setMaxSpeed(random.nextInt(100) / 100.0);
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setMinCrewSize(random.nextInt(5000));
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setMaxCrewSize(random.nextInt(10000));
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setMinRating(random.nextInt(300) / 100.0);
+        }
+        if (random.nextInt(4) == 0) {
+            filter.setMaxRating(random.nextInt(600) / 100.0);
+        }
+        return filter;
+    }
+
+    public static List<String> describe(List<Ship> ships) {
+        List<String> descriptions = new ArrayList<>();
+        for (Ship ship : ships) {
+            descriptions.add(String.join("|", Arrays.asList(String.valueOf(ship.getId()), ship.getName(), ship.getPlanet(),
+                    String.valueOf(ship.getShipType()), ship.getProdDate() == null ? "null" : String.valueOf(ship.getProdDate().getTime()),
+                    String.valueOf(ship.getUsed()), String.valueOf(ship.getSpeed()),
+                    String.valueOf(ship.getCrewSize()), String.valueOf(ship.getRating()))));
+        }
+        return descriptions;
+    }
+
+    private static String pick(Random random, String... values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,62 @@
+package com.space.repository;
+
+import com.space.controller.AbstractTest;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+/**
+ * Checks that the filter and order shapes ShipController generates are served by the indexes
+ * from the db/migration scripts rather than by a full scan.
+ */
+public class IndexUsageTest extends AbstractTest {
+
+    private static final String SELECT = "SELECT * FROM ship ";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public void setDataSource(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    //test1
+    @Test
+    public void shipTypeAndIsUsedUseCompositeIndex() {
+        assertUsesIndex("IDX_SHIP_TYPE_USED_RATING",
+                SELECT + "WHERE shipType = 'MERCHANT' AND isUsed = TRUE AND rating >= 1.5");
+    }
+
+    //test2
+    @Test
+    public void isUsedAndSpeedUseCompositeIndex() {
+        assertUsesIndex("IDX_SHIP_USED_SPEED",
+                SELECT + "WHERE isUsed = FALSE AND speed BETWEEN 0.3 AND 0.6");
+    }
+
+    //test3
+    @Test
+    public void rangeFiltersUseColumnIndexes() {
+        assertUsesIndex("IDX_SHIP_SPEED", SELECT + "WHERE speed >= 0.9");
+        assertUsesIndex("IDX_SHIP_PROD_DATE", SELECT + "WHERE prodDate >= DATE '3015-01-01'");
+        assertUsesIndex("IDX_SHIP_RATING", SELECT + "WHERE rating <= 0.3");
+        assertUsesIndex("IDX_SHIP_CREW_SIZE", SELECT + "WHERE crewSize BETWEEN 20 AND 30");
+    }
+
+    //test4
+    @Test
+    public void keysetOrdersUseSortedIndexes() {
+        assertUsesIndex("IDX_SHIP_SPEED", SELECT + "WHERE speed > 0.5 OR (speed = 0.5 AND id > 10) ORDER BY speed, id LIMIT 3");
+        assertUsesIndex("IDX_SHIP_PROD_DATE", SELECT + "ORDER BY prodDate, id LIMIT 3");
+        assertUsesIndex("IDX_SHIP_RATING", SELECT + "ORDER BY rating, id LIMIT 3");
+    }
+
+    private void assertUsesIndex(String index, String sql) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        assertTrue("Запрос не использует индекс " + index + ":\n" + plan, plan.contains(index));
+    }
+}
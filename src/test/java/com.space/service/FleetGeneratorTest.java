@@ -0,0 +1,51 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class FleetGeneratorTest {
+
+    //test1
+    @Test
+    public void sameSeedGivesSameFleet() throws IOException {
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+        new FleetGenerator(7).writeCsv(first, 1000);
+        new FleetGenerator(7).writeCsv(second, 1000);
+
+        assertEquals("Генератор с одинаковым seed создаёт разные корабли.", first.toString(), second.toString());
+        assertEquals("CSV содержит не то количество строк.", 1001, first.toString().split("\n").length);
+    }
+
+    //test2
+    @Test
+    public void generatedShipsAreValid() {
+        List<Ship> ships = new FleetGenerator(42).next(100_000);
+        Map<ShipType, Integer> types = new EnumMap<>(ShipType.class);
+
+        for (Ship ship : ships) {
+            int year = ShipRating.yearOf(ship.getProdDate().getTime());
+            assertTrue("Имя корабля не правильной длины: " + ship.getName(), ship.getName().length() >= 1 && ship.getName().length() <= 50);
+            assertTrue("Год выпуска вне диапазона: " + year, year >= 2800 && year <= 3019);
+            assertTrue("Скорость вне диапазона: " + ship.getSpeed(), ship.getSpeed() >= 0.01 && ship.getSpeed() <= 0.99);
+            assertTrue("Экипаж вне диапазона: " + ship.getCrewSize(), ship.getCrewSize() >= 1 && ship.getCrewSize() <= 9999);
+            assertEquals("Рейтинг посчитан не правильно.",
+                    ShipRating.rating(year, ship.getSpeed(), ship.getUsed()), ship.getRating());
+            types.merge(ship.getShipType(), 1, Integer::sum);
+        }
+
+        assertTrue("Транспортных кораблей должно быть больше всего.",
+                types.get(ShipType.TRANSPORT) > types.get(ShipType.MERCHANT)
+                        && types.get(ShipType.MERCHANT) > types.get(ShipType.MILITARY));
+    }
+}
@@ -0,0 +1,60 @@
+package com.space.service;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ShipRatingTest {
+
+    //test1
+    @Test
+    public void ratingMatchesBigDecimalHalfUp() {
+        for (int year = 2800; year <= ShipRating.CURRENT_YEAR; year++) {
+            for (int thousandths = 10; thousandths <= 990; thousandths++) {
+                double speed = thousandths / 1000.0;
+                assertRating(year, speed, false);
+                assertRating(year, speed, true);
+            }
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            assertRating(2800 + random.nextInt(220), 0.01 + random.nextDouble() * 0.98, random.nextBoolean());
+        }
+    }
+
+    //test2
+    @Test
+    public void yearOfMatchesCalendar() {
+        Calendar calendar = new GregorianCalendar();
+        Random random = new Random(42);
+        long from = new GregorianCalendar(2799, Calendar.DECEMBER, 30).getTimeInMillis();
+        long to = new GregorianCalendar(3020, Calendar.JANUARY, 2).getTimeInMillis();
+
+        for (int i = 0; i < 1_000_000; i++) {
+            long millis = from + (long) (random.nextDouble() * (to - from));
+            calendar.setTimeInMillis(millis);
+            assertEquals("Год даты " + millis + " вычисляется не правильно.",
+                    calendar.get(Calendar.YEAR), ShipRating.yearOf(millis));
+        }
+        for (int year = 2800; year <= ShipRating.CURRENT_YEAR; year++) {
+            long newYear = new GregorianCalendar(year, Calendar.JANUARY, 1).getTimeInMillis();
+            assertEquals("Год начала " + year + " года вычисляется не правильно.", year, ShipRating.yearOf(newYear));
+            assertEquals("Год конца " + (year - 1) + " года вычисляется не правильно.", year - 1, ShipRating.yearOf(newYear - 1));
+        }
+    }
+
+    private static void assertRating(int year, double speed, boolean isUsed) {
+        double k = isUsed ? 0.5 : 1;
+        double expected = BigDecimal.valueOf((80 * speed * k) / (ShipRating.CURRENT_YEAR - year + 1))
+                .setScale(2, RoundingMode.HALF_UP).doubleValue();
+        assertEquals("Рейтинг не совпадает для года " + year + ", скорости " + speed + ", isUsed " + isUsed + ".",
+                expected, ShipRating.rating(year, speed, isUsed));
+    }
+}